@@ -1,8 +1,12 @@
 package sample;
 
+import java.util.*;
+
+import org.springframework.boot.actuate.endpoint.*;
 import org.springframework.boot.actuate.health.*;
 import org.springframework.boot.actuate.health.Health.Builder;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.*;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.*;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
@@ -13,8 +17,12 @@ import sample.context.*;
 import sample.context.actor.ActorSession;
 import sample.context.audit.AuditHandler;
 import sample.context.audit.AuditHandler.AuditPersister;
-import sample.context.lock.IdLockHandler;
+import sample.context.job.*;
+import sample.context.ledger.BalanceLedger;
+import sample.context.lock.*;
+import sample.context.lock.IdLockHandler.IdLockInfo;
 import sample.context.mail.MailHandler;
+import sample.context.orm.*;
 import sample.context.report.ReportHandler;
 import sample.model.BusinessDayHandler;
 
@@ -53,9 +61,37 @@ public class ApplicationConfig {
             return new AuditPersister();
         }
         @Bean
+        PagingCounter pagingCounter() {
+            return new PagingCounter();
+        }
+        @Bean
+        OrmQueryCache ormQueryCache() {
+            return new OrmQueryCache();
+        }
+        @Bean
         IdLockHandler idLockHandler() {
             return new IdLockHandler();
         }
+        /** 複数ノード運用時のIDロックプロバイダ */
+        @Bean
+        @ConditionalOnProperty(prefix = "extension.lock.lease", name = "enabled", matchIfMissing = false)
+        DbIdLockProvider dbIdLockProvider() {
+            return new DbIdLockProvider();
+        }
+        /** 振込出金時の見込残高台帳 */
+        @Bean
+        @ConditionalOnProperty(prefix = "extension.ledger", name = "enabled", matchIfMissing = false)
+        BalanceLedger balanceLedger() {
+            return new BalanceLedger();
+        }
+        @Bean
+        PartitionHandler partitionHandler() {
+            return new PartitionHandler();
+        }
+        @Bean
+        JobHandler jobHandler() {
+            return new JobHandler();
+        }
         @Bean
         MailHandler mailHandler() {
             return new MailHandler();
@@ -91,6 +127,34 @@ public class ApplicationConfig {
         }
     }
     
+    /** 拡張メトリクス/管理エンドポイント定義を表現します。 */
+    @Configuration
+    static class ManagementConfig {
+        /** 保持/待機中のIDロック件数 */
+        @Bean
+        PublicMetrics idLockMetrics(final IdLockHandler idLock) {
+            return () -> Arrays.asList(new Metric<Integer>("idLock.live", idLock.liveLocks()));
+        }
+        /** 検索条件の形毎に保持した JPQL の利用状況 */
+        @Bean
+        PublicMetrics ormQueryCacheMetrics(final OrmQueryCache cache) {
+            return () -> Arrays.asList(
+                    new Metric<Long>("ormQueryCache.hit", cache.hits()),
+                    new Metric<Long>("ormQueryCache.miss", cache.misses()),
+                    new Metric<Integer>("ormQueryCache.size", cache.size()));
+        }
+        /** 保持/待機中のIDロック一覧 ( /api/management/idlocks ) */
+        @Bean
+        Endpoint<List<IdLockInfo>> idLockEndpoint(final IdLockHandler idLock) {
+            return new AbstractEndpoint<List<IdLockInfo>>("idlocks") {
+                @Override
+                public List<IdLockInfo> invoke() {
+                    return idLock.locks();
+                }
+            };
+        }
+    }
+
     @Configuration
     static class WebMVCConfig {
 
@@ -132,6 +132,12 @@ public class ValidationException extends RuntimeException {
         String Authentication = "error.Authentication";
         /** 対象機能の利用が認められていません */
         String AccessDenied = "error.AccessDeniedException";
+        /** 対象情報は他の処理で利用中です */
+        String IdLockBusy = "error.IdLockBusy";
+        /** ページングの開始位置が正しくありません */
+        String PagingCursor = "error.Pagination.cursor";
+        /** 実行中のジョブが上限に達しています */
+        String JobBusy = "error.JobBusy";
 
         /** ログインに失敗しました */
         String Login = "error.login";
@@ -3,8 +3,7 @@ package sample.context;
 import java.util.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.*;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +32,20 @@ public class AppSettingHandler {
     @Cacheable(cacheNames = "AppSettingHandler.appSetting", key = "#id")
     @Transactional(value = SystemRepository.BeanNameTx)
     public AppSetting setting(String id) {
+        return load(id);
+    }
+
+    /**
+     * キャッシュを経由せずにアプリケーション設定情報を取得します。
+     * <p>他ノードによる更新を確認する用途で利用します。取得結果でキャッシュも更新されます。
+     */
+    @CachePut(cacheNames = "AppSettingHandler.appSetting", key = "#id")
+    @Transactional(value = SystemRepository.BeanNameTx)
+    public AppSetting reload(String id) {
+        return load(id);
+    }
+
+    private AppSetting load(String id) {
         if (mockMap.isPresent())
             return mockSetting(id);
         AppSetting setting = AppSetting.load(rep, id);
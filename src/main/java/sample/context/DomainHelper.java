@@ -1,9 +1,12 @@
 package sample.context;
 
+import java.util.Optional;
+
 import org.springframework.beans.factory.annotation.Autowired;
 
 import lombok.Setter;
 import sample.context.actor.*;
+import sample.context.ledger.BalanceLedger;
 
 /**
  * ドメイン処理を行う上で必要となるインフラ層コンポーネントへのアクセサを提供します。
@@ -17,6 +20,8 @@ public class DomainHelper {
     private Timestamper time;
     @Autowired
     private AppSettingHandler settingHandler;
+    @Autowired(required = false)
+    private BalanceLedger ledger;
 
     /** ログイン中のユースケース利用者を取得します。 */
     public Actor actor() {
@@ -40,7 +45,16 @@ public class DomainHelper {
 
     /** アプリケーション設定情報を設定します。 */
     public AppSetting settingSet(String id, String value) {
-        return settingHandler.update(id, value);
+        AppSetting setting = settingHandler.update(id, value);
+        if (Timestamper.KeyDay.equals(id)) {
+            time.refresh();
+        }
+        return setting;
+    }
+
+    /** 見込残高台帳を取得します。(台帳を利用しない時は空) */
+    public Optional<BalanceLedger> ledger() {
+        return Optional.ofNullable(ledger);
     }
 
 }
@@ -3,21 +3,31 @@ package sample.context;
 import java.time.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 
-import lombok.Setter;
+import lombok.*;
 import sample.util.*;
 
 /**
  * 日時ユーティリティコンポーネント。
+ * <p>営業日はアプリケーション設定情報から取得した値をメモリ上に保持し、
+ * 一定間隔毎にシステムスキーマの値を再確認する事で他ノードでの営業日更新を反映します。
  */
 @Setter
+@ConfigurationProperties(prefix = "extension.timestamper")
 public class Timestamper {
     public static final String KeyDay = "system.businessDay.day";
+    public static final long DefaultRefreshMillis = 1000L;
 
     @Autowired(required = false)
     private AppSettingHandler setting;
 
     private final Clock clock;
+    /** 営業日の再確認間隔 (ミリ秒)。0以下の時は毎回確認します。 */
+    private long refreshMillis = DefaultRefreshMillis;
+    /** 保持している営業日 */
+    @Setter(AccessLevel.NONE)
+    private volatile CachedDay cachedDay;
 
     public Timestamper() {
         clock = Clock.systemDefaultZone();
@@ -27,9 +37,21 @@ public class Timestamper {
         this.clock = clock;
     }
 
-    /** 営業日を返します。 */
+    /**
+     * 営業日を返します。
+     * <p>再確認間隔内であれば保持している営業日をそのまま返します。
+     */
     public LocalDate day() {
-        return setting == null ? LocalDate.now(clock) : DateUtils.day(setting.setting(KeyDay).str());
+        if (setting == null) {
+            return LocalDate.now(clock);
+        }
+        long now = System.currentTimeMillis();
+        CachedDay cached = this.cachedDay;
+        if (cached == null || cached.isExpired(now, refreshMillis)) {
+            cached = new CachedDay(DateUtils.day(setting.reload(KeyDay).str()), now);
+            this.cachedDay = cached;
+        }
+        return cached.getDay();
     }
 
     /** 日時を返します。 */
@@ -48,9 +70,29 @@ public class Timestamper {
      * @param day 更新営業日
      */
     public Timestamper proceedDay(LocalDate day) {
-        if (setting != null)
+        if (setting != null) {
             setting.update(KeyDay, DateUtils.dayFormat(day));
+            refresh();
+        }
+        return this;
+    }
+
+    /** 保持している営業日を破棄します。次回参照時にシステムスキーマから再取得されます。 */
+    public Timestamper refresh() {
+        this.cachedDay = null;
         return this;
     }
 
+    /** 保持している営業日を表現します。 */
+    @Value
+    private static class CachedDay {
+        private LocalDate day;
+        /** 取得時刻 (エポックミリ秒) */
+        private long loadedMillis;
+
+        public boolean isExpired(long now, long refreshMillis) {
+            return loadedMillis + refreshMillis <= now;
+        }
+    }
+
 }
@@ -14,6 +14,7 @@ import sample.context.Dto;
 import sample.context.actor.Actor;
 import sample.context.actor.Actor.ActorRoleType;
 import sample.context.orm.*;
+import sample.context.orm.Pagination.CountType;
 import sample.context.orm.Sort.SortOrder;
 import sample.model.constraints.*;
 import sample.util.*;
@@ -28,7 +29,8 @@ public class AuditActor extends OrmActiveRecord<AuditActor> {
     private static final long serialVersionUID = 1l;
 
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "audit_actor_seq", sequenceName = "audit_actor_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_actor_seq")
     private Long id;
     /** 利用者ID */
     @IdStr
@@ -126,7 +128,7 @@ public class AuditActor extends OrmActiveRecord<AuditActor> {
         @ISODate
         private LocalDate toDay;
         @NotNull
-        private Pagination page = new Pagination();
+        private Pagination page = new Pagination().countType(CountType.Async);
     }
 
     /** 登録パラメタ */
@@ -12,6 +12,7 @@ import lombok.*;
 import sample.ActionStatusType;
 import sample.context.Dto;
 import sample.context.orm.*;
+import sample.context.orm.Pagination.CountType;
 import sample.context.orm.Sort.SortOrder;
 import sample.model.constraints.*;
 import sample.util.DateUtils;
@@ -26,7 +27,8 @@ public class AuditEvent extends OrmActiveRecord<AuditEvent> {
     private static final long serialVersionUID = 1l;
 
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "audit_event_seq", sequenceName = "audit_event_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_event_seq")
     private Long id;
     /** カテゴリ */
     private String category;
@@ -106,7 +108,7 @@ public class AuditEvent extends OrmActiveRecord<AuditEvent> {
         @ISODate
         private LocalDate toDay;
         @NotNull
-        private Pagination page = new Pagination();
+        private Pagination page = new Pagination().countType(CountType.Async);
     }
 
     /** 登録パラメタ */
@@ -0,0 +1,231 @@
+package sample.context.job;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.*;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import sample.*;
+import sample.ValidationException.ErrorKeys;
+import sample.context.Dto;
+import sample.context.actor.*;
+import sample.context.job.JobStep.JobChunk;
+import sample.context.lock.*;
+import sample.context.lock.IdLockHandler.LockType;
+import sample.context.orm.SystemRepository;
+
+/**
+ * チェックポイント付で再開可能なジョブの実行を行います。
+ * <p>ジョブ/ステップの実行状況はシステムスキーマへ記録され、ステップはチャンクのコミット毎に
+ * チェックポイント(処理済の最終キー)を記録します。失敗/中断したジョブを同一の名称/営業日で再実行すると、
+ * 完了済のステップを飛ばしてチェックポイント以降から処理を再開します。
+ * <p>同一ジョブの多重実行はIDロックで抑止されます。({@link IdLockProvider}設定時はノードを跨いで抑止されます)
+ * 実行中のジョブを要求した時は{@link IdLockBusyException}が発生します。
+ */
+@ConfigurationProperties(prefix = "extension.job")
+@Slf4j
+public class JobHandler {
+
+    @Autowired
+    @Lazy
+    @Setter
+    private SystemRepository rep;
+    @Autowired
+    @Qualifier(SystemRepository.BeanNameTx)
+    @Setter
+    private PlatformTransactionManager tx;
+    @Autowired
+    @Setter
+    private ActorSession session;
+    @Autowired
+    @Setter
+    private IdLockHandler idLock;
+
+    /** 非同期実行時の同時実行数 (超過した要求は受け付けません) */
+    @Getter
+    @Setter
+    private int concurrency = 2;
+    private ExecutorService executor;
+    private Semaphore slots;
+
+    /** 非同期実行用のワーカーを開始します。 */
+    @PostConstruct
+    public void start() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, (r) -> new Thread(r, "job-" + seq.incrementAndGet()));
+        slots = new Semaphore(concurrency);
+    }
+
+    /** 非同期実行用のワーカーを停止します。実行中のジョブには割り込みが要求されます。 */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * ジョブを同期実行します。
+     * @param jobName ジョブ名称
+     * @param baseDay 営業日
+     * @param steps 実行するステップ一覧(実行順)
+     * @return 完了したジョブ
+     */
+    public JobInstance run(String jobName, LocalDate baseDay, List<JobStep> steps) {
+        return idLock.tryCall(lockKey(jobName, baseDay), LockType.Write,
+                () -> execute(prepare(jobName, baseDay), steps));
+    }
+
+    /**
+     * ジョブを非同期実行します。
+     * <p>ワーカーは IDロックを取得した上でジョブの受付(開始/再開の登録)から実行までを行い、呼出元は受付の完了まで待機します。
+     * 以降の実行状況は{@link #status(Long)}で確認してください。
+     * <p>同時実行数を超えた時は審査例外、同一ジョブが実行中の時は{@link IdLockBusyException}が発生します。
+     * @return 受け付けたジョブ
+     */
+    public JobInstance submit(String jobName, LocalDate baseDay, List<JobStep> steps) {
+        Actor actor = session.actor();
+        CompletableFuture<JobInstance> accepted = new CompletableFuture<>();
+        if (!slots.tryAcquire()) {
+            throw new ValidationException(ErrorKeys.JobBusy);
+        }
+        try {
+            executor.execute(() -> {
+                session.bind(actor);
+                RuntimeException error = null;
+                try {
+                    idLock.tryCall(lockKey(jobName, baseDay), LockType.Write, () -> {
+                        JobInstance instance = prepare(jobName, baseDay);
+                        accepted.complete(instance);
+                        return execute(instance, steps);
+                    });
+                } catch (RuntimeException e) {
+                    error = e;
+                } finally {
+                    session.unbind();
+                    slots.release();
+                }
+                // 受付前の例外は呼出元へ返す (受付後の例外はジョブ実行時に記録済)
+                if (error != null) {
+                    accepted.completeExceptionally(error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+        try {
+            return accepted.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvocationException("error.Exception", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new InvocationException("error.Exception", e.getCause());
+        }
+    }
+
+    private String lockKey(String jobName, LocalDate baseDay) {
+        return "job:" + jobName + ":" + baseDay;
+    }
+
+    /** ジョブを開始(または再開)状態にします。 */
+    private JobInstance prepare(String jobName, LocalDate baseDay) {
+        return txNew(() -> JobInstance.get(rep, jobName, baseDay)
+                .map((job) -> {
+                    if (job.getStatusType().isFinish()) {
+                        throw new ValidationException(ErrorKeys.ActionUnprocessing);
+                    }
+                    return job.restart(rep);
+                })
+                .orElseGet(() -> JobInstance.register(rep, jobName, baseDay)));
+    }
+
+    private JobInstance execute(final JobInstance instance, List<JobStep> steps) {
+        Long id = instance.getId();
+        String jobName = instance.getJobName();
+        log.info("[" + jobName + "] ジョブを開始します。 [id: " + id + ", 実行回数: " + instance.getRunCount() + "]");
+        JobStepExecution exec = null;
+        try {
+            for (JobStep step : steps) {
+                exec = txNew(() -> JobStepExecution.getOrNew(rep, id, step.getName()));
+                if (exec.getStatusType().isFinish()) {
+                    log.info("[" + jobName + "/" + step.getName() + "] 完了済のステップを飛ばします。");
+                    exec = null;
+                    continue;
+                }
+                if (exec.getCheckpoint() != null) {
+                    log.info("[" + jobName + "/" + step.getName() + "] チェックポイントから再開します。 [" + exec.getCheckpoint() + "]");
+                }
+                JobChunk chunk;
+                do {
+                    chunk = step.execute(exec.getCheckpoint());
+                    final JobStepExecution current = exec;
+                    final String checkpoint = chunk.getCheckpoint() != null ? chunk.getCheckpoint() : exec.getCheckpoint();
+                    final int processed = chunk.getProcessed();
+                    exec = txNew(() -> current.checkpoint(rep, checkpoint, processed));
+                } while (!chunk.isLast() && !Thread.currentThread().isInterrupted());
+                if (!chunk.isLast()) {
+                    throw new IllegalStateException("ジョブの実行が中断されました。");
+                }
+                final JobStepExecution current = exec;
+                long processed = txNew(() -> current.finish(rep)).getProcessedCount();
+                exec = null;
+                log.info("[" + jobName + "/" + step.getName() + "] ステップが完了しました。 [" + processed + "件]");
+            }
+            JobInstance ret = txNew(() -> rep.load(JobInstance.class, id).finish(rep));
+            log.info("[" + jobName + "] ジョブが完了しました。 [id: " + id + ", " + ret.getTime() + "ms]");
+            return ret;
+        } catch (RuntimeException e) {
+            log.error("[" + jobName + "] ジョブが失敗しました。 [id: " + id + "]", e);
+            final JobStepExecution current = exec;
+            try {
+                txNew(() -> {
+                    if (current != null) {
+                        current.error(rep, e.getMessage());
+                    }
+                    return rep.load(JobInstance.class, id).error(rep, e.getMessage());
+                });
+            } catch (Exception ex) {
+                //low: 2重障害(恐らくDB起因)なのでloggerのみの記載に留める
+            }
+            throw e;
+        }
+    }
+
+    /** ジョブの実行状況を返します。 */
+    public JobStatus status(Long id) {
+        return txNew(() -> new JobStatus(rep.load(JobInstance.class, id), JobStepExecution.find(rep, id)));
+    }
+
+    private <T> T txNew(Supplier<T> callable) {
+        TransactionTemplate template = new TransactionTemplate(tx);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template.execute((status) -> callable.get());
+    }
+
+    /** ジョブの実行状況を表現します。 */
+    @Value
+    public static class JobStatus implements Dto {
+        private static final long serialVersionUID = 1l;
+        /** ジョブ */
+        private JobInstance job;
+        /** ステップ一覧 */
+        private List<JobStepExecution> steps;
+    }
+
+}
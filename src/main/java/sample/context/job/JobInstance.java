@@ -0,0 +1,103 @@
+package sample.context.job;
+
+import java.time.*;
+import java.util.Optional;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.*;
+import sample.ActionStatusType;
+import sample.context.orm.*;
+import sample.util.DateUtils;
+
+/**
+ * ジョブの実行単位を表現します。
+ * <p>ジョブは名称と営業日で一意となり、失敗/中断したジョブは同一の実行単位として再開されます。
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "jobName", "baseDay" }))
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class JobInstance extends OrmActiveRecord<JobInstance> {
+    private static final long serialVersionUID = 1l;
+
+    @Id
+    @SequenceGenerator(name = "job_instance_seq", sequenceName = "job_instance_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_instance_seq")
+    private Long id;
+    /** ジョブ名称 */
+    @NotNull
+    private String jobName;
+    /** 営業日 */
+    @NotNull
+    private LocalDate baseDay;
+    /** 処理ステータス */
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private ActionStatusType statusType;
+    /** 実行回数(再開時に加算) */
+    private int runCount;
+    /** エラー事由 */
+    private String errorReason;
+    /** 処理時間(msec) */
+    private Long time;
+    /** 開始日時 */
+    @NotNull
+    private LocalDateTime startDate;
+    /** 終了日時(未完了時はnull) */
+    private LocalDateTime endDate;
+
+    /** ジョブを再開します。 */
+    public JobInstance restart(final SystemRepository rep) {
+        setStatusType(ActionStatusType.Processing);
+        setRunCount(runCount + 1);
+        setErrorReason(null);
+        setEndDate(null);
+        setTime(null);
+        return update(rep);
+    }
+
+    /** ジョブを完了状態にします。 */
+    public JobInstance finish(final SystemRepository rep) {
+        LocalDateTime now = rep.dh().time().date();
+        setStatusType(ActionStatusType.Processed);
+        setEndDate(now);
+        setTime(DateUtils.between(startDate, endDate).get().toMillis());
+        return update(rep);
+    }
+
+    /** ジョブを例外状態にします。 */
+    public JobInstance error(final SystemRepository rep, String errorReason) {
+        LocalDateTime now = rep.dh().time().date();
+        setStatusType(ActionStatusType.Error);
+        setErrorReason(StringUtils.abbreviate(errorReason, 250));
+        setEndDate(now);
+        setTime(DateUtils.between(startDate, endDate).get().toMillis());
+        return update(rep);
+    }
+
+    /** ジョブを取得します。 */
+    public static Optional<JobInstance> get(final SystemRepository rep, Long id) {
+        return rep.get(JobInstance.class, id);
+    }
+
+    /** ジョブを取得します。 */
+    public static Optional<JobInstance> get(final SystemRepository rep, String jobName, LocalDate baseDay) {
+        return rep.tmpl().get("from JobInstance j where j.jobName=?1 and j.baseDay=?2", jobName, baseDay);
+    }
+
+    /** ジョブを登録します。 */
+    public static JobInstance register(final SystemRepository rep, String jobName, LocalDate baseDay) {
+        JobInstance m = new JobInstance();
+        m.setJobName(jobName);
+        m.setBaseDay(baseDay);
+        m.setStatusType(ActionStatusType.Processing);
+        m.setRunCount(1);
+        m.setStartDate(rep.dh().time().date());
+        return m.save(rep);
+    }
+
+}
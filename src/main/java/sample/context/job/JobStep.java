@@ -0,0 +1,71 @@
+package sample.context.job;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.Value;
+import sample.context.Dto;
+import sample.context.job.PartitionHandler.PartitionResult;
+
+/**
+ * ジョブを構成するチャンク指向のステップを表現します。
+ * <p>ステップはチェックポイント(処理済の最終キー)以降の1チャンクを処理してコミットする処理を繰り返します。
+ * チェックポイントの記録はチャンクのコミット後に別トランザクションで行われるため、記録前に中断した時は
+ * 同一チャンクが再度処理されます。処理済の情報を対象外とする(ステータスで除外する等)冪等な処理としてください。
+ */
+public interface JobStep {
+
+    /** ステップ名称を返します。 */
+    String getName();
+
+    /**
+     * チェックポイント以降の1チャンクを処理します。
+     * <p>チャンク内の処理は呼出側のトランザクションに依存せず、自身でコミットしてください。
+     * @param checkpoint 処理済の最終キー(初回はnull)
+     * @return チャンクの処理結果
+     */
+    JobChunk execute(String checkpoint);
+
+    /** ステップを生成します。 */
+    static JobStep of(String name, final Function<String, JobChunk> chunk) {
+        return new JobStep() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public JobChunk execute(String checkpoint) {
+                return chunk.apply(checkpoint);
+            }
+        };
+    }
+
+    /** チャンクの処理結果を表現します。 */
+    @Value
+    public static class JobChunk implements Dto {
+        private static final long serialVersionUID = 1l;
+        /** 処理件数 */
+        private int processed;
+        /** 処理済の最終キー */
+        private String checkpoint;
+        /** 最終チャンクの時はtrue */
+        private boolean last;
+
+        /**
+         * パーティション単位に並列実行したチャンクの処理結果を返します。
+         * <p>失敗したパーティションがある時はチェックポイントを進めずに例外とします。ステップは失敗となり、
+         * 再実行時は同じチャンクから再開します。 ( 処理済のパーティションはステータス等で対象外となる前提です )
+         * @param result パーティションの実行結果
+         * @param keys チャンクで対象としたパーティションキー一覧 (キー順)
+         * @param size 1チャンクで対象とするパーティション件数
+         */
+        public static JobChunk of(final PartitionResult result, final List<String> keys, int size) {
+            if (0 < result.getFailed()) {
+                throw new IllegalStateException(result.getFailed() + "件のパーティションの処理に失敗しました。");
+            }
+            return new JobChunk(result.getProcessed(), keys.get(keys.size() - 1), keys.size() < size);
+        }
+    }
+
+}
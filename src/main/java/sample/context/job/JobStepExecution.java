@@ -0,0 +1,107 @@
+package sample.context.job;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.*;
+import sample.ActionStatusType;
+import sample.context.orm.*;
+
+/**
+ * ジョブを構成するステップの実行状況を表現します。
+ * <p>ステップはチャンク単位でコミットされ、コミット毎に処理済の最終キーをチェックポイントとして保持します。
+ * 再開時はチェックポイント以降から処理を継続します。
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "jobInstanceId", "stepName" }))
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class JobStepExecution extends OrmActiveRecord<JobStepExecution> {
+    private static final long serialVersionUID = 1l;
+
+    @Id
+    @SequenceGenerator(name = "job_step_execution_seq", sequenceName = "job_step_execution_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_step_execution_seq")
+    private Long id;
+    /** ジョブID */
+    @NotNull
+    private Long jobInstanceId;
+    /** ステップ名称 */
+    @NotNull
+    private String stepName;
+    /** 処理ステータス */
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private ActionStatusType statusType;
+    /** チェックポイント(処理済の最終キー) */
+    private String checkpoint;
+    /** 処理件数 */
+    private long processedCount;
+    /** コミット済のチャンク数 */
+    private int chunkCount;
+    /** エラー事由 */
+    private String errorReason;
+    /** 開始日時 */
+    @NotNull
+    private LocalDateTime startDate;
+    /** 最終更新日時 */
+    @NotNull
+    private LocalDateTime updateDate;
+    /** 終了日時(未完了時はnull) */
+    private LocalDateTime endDate;
+
+    /** チャンクの処理結果をチェックポイントとして記録します。 */
+    public JobStepExecution checkpoint(final SystemRepository rep, String checkpoint, int processed) {
+        setStatusType(ActionStatusType.Processing);
+        setCheckpoint(checkpoint);
+        setProcessedCount(processedCount + processed);
+        setChunkCount(chunkCount + 1);
+        setErrorReason(null);
+        setUpdateDate(rep.dh().time().date());
+        return update(rep);
+    }
+
+    /** ステップを完了状態にします。 */
+    public JobStepExecution finish(final SystemRepository rep) {
+        LocalDateTime now = rep.dh().time().date();
+        setStatusType(ActionStatusType.Processed);
+        setUpdateDate(now);
+        setEndDate(now);
+        return update(rep);
+    }
+
+    /** ステップを例外状態にします。 */
+    public JobStepExecution error(final SystemRepository rep, String errorReason) {
+        setStatusType(ActionStatusType.Error);
+        setErrorReason(StringUtils.abbreviate(errorReason, 250));
+        setUpdateDate(rep.dh().time().date());
+        return update(rep);
+    }
+
+    /** ステップを取得します。(未登録時は新規に登録します) */
+    public static JobStepExecution getOrNew(final SystemRepository rep, Long jobInstanceId, String stepName) {
+        Optional<JobStepExecution> step = rep.tmpl().get(
+                "from JobStepExecution s where s.jobInstanceId=?1 and s.stepName=?2", jobInstanceId, stepName);
+        return step.orElseGet(() -> {
+            LocalDateTime now = rep.dh().time().date();
+            JobStepExecution m = new JobStepExecution();
+            m.setJobInstanceId(jobInstanceId);
+            m.setStepName(stepName);
+            m.setStatusType(ActionStatusType.Processing);
+            m.setStartDate(now);
+            m.setUpdateDate(now);
+            return m.save(rep);
+        });
+    }
+
+    /** ジョブに紐付くステップ一覧を検索します。 */
+    public static List<JobStepExecution> find(final SystemRepository rep, Long jobInstanceId) {
+        return rep.tmpl().find("from JobStepExecution s where s.jobInstanceId=?1 order by s.id", jobInstanceId);
+    }
+
+}
@@ -0,0 +1,153 @@
+package sample.context.job;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.*;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import sample.InvocationException;
+import sample.context.actor.*;
+
+/**
+ * 処理対象をパーティション(口座等)単位に分割して並列実行します。
+ * <p>パーティションは常駐する有界のワーカースレッドへ順次割り当てられ、各ワーカーは自身の進捗をログへ出力します。
+ * 一部のパーティションで例外が発生しても他のパーティションの処理は継続されます。
+ * <p>呼出元の利用者はワーカースレッドへ引き継がれますが、トランザクションは引き継がれません。
+ * パーティション毎の処理内で個別にトランザクションを管理してください。
+ * low: 並列実行数はDBの最大接続プーリング数を超えないように設定してください。
+ */
+@ConfigurationProperties(prefix = "extension.job.partition")
+@Slf4j
+public class PartitionHandler {
+
+    @Autowired
+    @Setter
+    private ActorSession session;
+
+    /** 並列実行数 */
+    @Getter
+    @Setter
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /** ワーカーが進捗を出力するパーティション件数の間隔 */
+    @Getter
+    @Setter
+    private int progressInterval = 100;
+    private ExecutorService executor;
+
+    /** 並列実行用のワーカーを開始します。 */
+    @PostConstruct
+    public void start() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, (r) -> new Thread(r, "partition-" + seq.incrementAndGet()));
+    }
+
+    /** 並列実行用のワーカーを停止します。実行中のパーティション処理には割り込みが要求されます。 */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * パーティション単位に処理を並列実行します。
+     * <p>全てのパーティションの処理が完了するまで呼出元は待機します。
+     * @param name 処理名称(ワーカースレッド名や進捗ログに利用されます)
+     * @param partitions 処理対象のパーティションキー一覧
+     * @param task パーティション毎の処理。処理件数を返してください。
+     * @return 実行結果
+     */
+    public <K> PartitionResult execute(String name, Collection<K> partitions, final ToIntFunction<K> task) {
+        long start = System.currentTimeMillis();
+        Queue<K> queue = new ConcurrentLinkedQueue<>(partitions);
+        int workers = Math.max(Math.min(parallelism, partitions.size()), 1);
+        Actor actor = session.actor();
+        AtomicInteger seq = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        List<Future<PartitionResult>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                String worker = name + "-worker-" + seq.incrementAndGet();
+                futures.add(executor.submit(() -> work(worker, queue, done, partitions.size(), actor, task)));
+            }
+            PartitionResult result = new PartitionResult(0, 0, 0, 0L);
+            for (Future<PartitionResult> future : futures) {
+                result = result.merge(future.get());
+            }
+            result = result.elapsed(System.currentTimeMillis() - start);
+            log.info("[" + name + "] 完了しました。 " + result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvocationException("error.Exception", e);
+        } catch (ExecutionException e) {
+            throw new InvocationException("error.Exception", e.getCause());
+        } finally {
+            // 中断時は未完了のワーカーへ割り込みを要求する (ワーカースレッド自体は再利用される)
+            futures.forEach((future) -> future.cancel(true));
+        }
+    }
+
+    private <K> PartitionResult work(String worker, Queue<K> queue, AtomicInteger done, int total, Actor actor,
+            ToIntFunction<K> task) {
+        Thread thread = Thread.currentThread();
+        String threadName = thread.getName();
+        thread.setName(worker);
+        session.bind(actor);
+        int partitions = 0;
+        int processed = 0;
+        int failed = 0;
+        try {
+            K key;
+            while ((key = queue.poll()) != null && !Thread.currentThread().isInterrupted()) {
+                try {
+                    processed += task.applyAsInt(key);
+                } catch (Exception e) {
+                    failed++;
+                    log.error("[" + worker + "] パーティション[" + key + "]の処理に失敗しました。", e);
+                }
+                partitions++;
+                int doneAll = done.incrementAndGet();
+                if (partitions % progressInterval == 0) {
+                    log.info("[" + worker + "] " + partitions + "パーティション/" + processed + "件を処理しました。 (全体 "
+                            + doneAll + "/" + total + ")");
+                }
+            }
+            log.info("[" + worker + "] " + partitions + "パーティション/" + processed + "件を処理しました。");
+            return new PartitionResult(partitions, processed, failed, 0L);
+        } finally {
+            session.unbind();
+            thread.setName(threadName);
+        }
+    }
+
+    /** パーティション実行結果を表現します。 */
+    @Value
+    public static class PartitionResult {
+        /** 処理したパーティション件数 */
+        private int partitions;
+        /** 処理件数 */
+        private int processed;
+        /** 失敗したパーティション件数 */
+        private int failed;
+        /** 処理時間(msec) */
+        private long elapsedMillis;
+
+        PartitionResult merge(PartitionResult other) {
+            return new PartitionResult(partitions + other.partitions, processed + other.processed,
+                    failed + other.failed, elapsedMillis);
+        }
+
+        PartitionResult elapsed(long elapsedMillis) {
+            return new PartitionResult(partitions, processed, failed, elapsedMillis);
+        }
+    }
+
+}
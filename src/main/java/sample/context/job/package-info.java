@@ -0,0 +1,5 @@
+/**
+ * ジョブ関連のインフラ層コンポーネント。
+ * <p>日次バッチ等の大量件数処理の実行基盤を提供します。
+ */
+package sample.context.job;
@@ -0,0 +1,168 @@
+package sample.context.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.*;
+
+import lombok.*;
+import sample.context.lock.IdLockHandler;
+import sample.context.lock.IdLockHandler.LockType;
+
+/**
+ * 口座通貨単位の見込残高(出金可能額)をメモリ上に保持する台帳です。
+ * <p>見込残高は「口座残高 + 基準受渡日までの未実現キャッシュフロー - 未処理の出金依頼額」を表現し、
+ * 基準受渡日と共に保持されます。未保持時や基準受渡日が異なる時は DB から再構築されます。
+ * <p>見込残高に影響する更新は{@link #apply}で差分として通知してください。差分はトランザクションのコミット後に
+ * 台帳へ反映されます。(ロールバック時は破棄) 通知時から台帳が再構築されていた(バージョンが異なる)時は
+ * 差分を反映せずに台帳を破棄し、次回参照時に再構築します。
+ * <p>台帳の参照/更新は口座IDロック(書込)下で行われます。口座の読取ロックのみを保持した状態では呼び出さないでください。
+ * low: ノードローカルの台帳のため、複数ノードで口座を更新する構成では利用しないでください。
+ */
+public class BalanceLedger {
+
+    @Autowired
+    @Setter
+    private IdLockHandler idLock;
+
+    private final ConcurrentMap<String, LedgerEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * 見込残高を返します。
+     * <p>トランザクション中に通知済(未コミット)の差分も反映された値となります。
+     * @param valueDay 基準受渡日
+     * @param loader 台帳が存在しない時に DB から見込残高を算出する関数
+     */
+    public BigDecimal balance(String accountId, String currency, LocalDate valueDay, Supplier<BigDecimal> loader) {
+        return idLock.call(accountId, LockType.Write, () -> {
+            String key = key(accountId, currency);
+            LedgerEntry entry = entries.get(key);
+            if (entry == null || !entry.getValueDay().equals(valueDay)) {
+                entry = new LedgerEntry(versions.incrementAndGet(), valueDay, loader.get());
+                entries.put(key, entry);
+            }
+            final LedgerEntry current = entry;
+            return pendings().stream()
+                    .filter((delta) -> delta.getKey().equals(key) && Objects.equals(delta.getVersion(), current.getVersion()))
+                    .reduce(current, LedgerEntry::add, (a, b) -> b)
+                    .getAmount();
+        });
+    }
+
+    /**
+     * 見込残高へ差分を通知します。
+     * <p>トランザクション中の時はコミット後に反映されます。
+     * @param amount 見込残高の増減額
+     * @param flowDay 差分が有効となる受渡日。基準受渡日より後の時は反映されません。(null の時は常に反映)
+     */
+    public void apply(String accountId, String currency, BigDecimal amount, LocalDate flowDay) {
+        String key = key(accountId, currency);
+        Long version = Optional.ofNullable(entries.get(key)).map(LedgerEntry::getVersion).orElse(null);
+        LedgerDelta delta = new LedgerDelta(accountId, key, version, amount, flowDay);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronization().deltas.add(delta);
+        } else {
+            commit(Arrays.asList(delta));
+        }
+    }
+
+    private List<LedgerDelta> pendings() {
+        return currentSynchronization().map((sync) -> sync.deltas).orElse(Collections.emptyList());
+    }
+
+    private LedgerSynchronization synchronization() {
+        return currentSynchronization().orElseGet(() -> {
+            LedgerSynchronization sync = new LedgerSynchronization();
+            TransactionSynchronizationManager.registerSynchronization(sync);
+            return sync;
+        });
+    }
+
+    /** 現在のトランザクションに登録されている同期処理を返します。(外側のトランザクションのものは含みません) */
+    private Optional<LedgerSynchronization> currentSynchronization() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Optional.empty();
+        }
+        return TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter((sync) -> sync instanceof LedgerSynchronization && ((LedgerSynchronization) sync).ledger() == this)
+                .map((sync) -> (LedgerSynchronization) sync)
+                .findFirst();
+    }
+
+    private void commit(List<LedgerDelta> deltas) {
+        deltas.forEach((delta) -> idLock.call(delta.getAccountId(), LockType.Write, () -> {
+            entries.computeIfPresent(delta.getKey(), (key, entry) -> Objects.equals(delta.getVersion(), entry.getVersion())
+                    ? entry.add(delta) : null);
+        }));
+    }
+
+    /** 口座通貨の台帳を破棄します。 */
+    public void evict(String accountId, String currency) {
+        idLock.call(accountId, LockType.Write, () -> {
+            entries.remove(key(accountId, currency));
+        });
+    }
+
+    /** 全ての台帳を破棄します。 */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** 保持している台帳の件数を返します。 */
+    public int size() {
+        return entries.size();
+    }
+
+    private String key(String accountId, String currency) {
+        return accountId + "/" + currency;
+    }
+
+    /** コミット後に差分を台帳へ反映します。 */
+    private class LedgerSynchronization extends TransactionSynchronizationAdapter {
+        private final List<LedgerDelta> deltas = new ArrayList<>();
+
+        private BalanceLedger ledger() {
+            return BalanceLedger.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            commit(deltas);
+        }
+    }
+
+    /** 口座通貨単位の見込残高を表現します。 */
+    @Value
+    private static class LedgerEntry {
+        private long version;
+        /** 基準受渡日 */
+        private LocalDate valueDay;
+        /** 見込残高 */
+        private BigDecimal amount;
+
+        public LedgerEntry add(LedgerDelta delta) {
+            if (delta.getFlowDay() != null && delta.getFlowDay().isAfter(valueDay)) {
+                return this;
+            }
+            return new LedgerEntry(version, valueDay, amount.add(delta.getAmount()));
+        }
+    }
+
+    /** 見込残高の差分を表現します。 */
+    @Value
+    private static class LedgerDelta {
+        private String accountId;
+        private String key;
+        /** 通知時の台帳バージョン(未保持時はnull) */
+        private Long version;
+        private BigDecimal amount;
+        private LocalDate flowDay;
+    }
+
+}
@@ -0,0 +1,175 @@
+package sample.context.lock;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.annotation.*;
+import javax.persistence.PersistenceException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.*;
+import sample.context.orm.SystemRepository;
+
+/**
+ * システムスキーマのリーステーブル({@link IdLockLease})を利用してノードを跨いだIDロックを提供します。
+ * <p>保持中のリースはバックグラウンドで定期的に一括延長されます。ノードが停止した時は
+ * リースの有効期限切れをもって他ノードがロックを取得できるようになります。
+ * <p>リースの取得/解放は呼出元のトランザクションとは独立したトランザクションで即時に確定します。
+ * <p>延長できなかったリース(他ノードに奪取された、または延長が有効期間内に行えなかったもの)は失効として扱い、
+ * {@link #isValid(Serializable)}がfalseを返します。{@link IdLockHandler}は失効を検知すると保持者の処理を失敗させます。
+ */
+@ConfigurationProperties(prefix = "extension.lock.lease")
+public class DbIdLockProvider implements IdLockProvider {
+
+    protected Log log = LogFactory.getLog(getClass());
+
+    @Autowired
+    @Lazy
+    @Setter
+    private SystemRepository rep;
+    @Autowired
+    @Qualifier(SystemRepository.BeanNameTx)
+    @Setter
+    private PlatformTransactionManager tx;
+
+    /** ノード識別子(未指定時はプロセス名) */
+    @Getter
+    @Setter
+    private String node = ManagementFactory.getRuntimeMXBean().getName();
+    /** リース有効期間(msec) */
+    @Getter
+    @Setter
+    private long leaseMillis = 30000L;
+    /** リース取得待機時の再試行間隔(msec) */
+    @Getter
+    @Setter
+    private long pollMillis = 50L;
+
+    /** 自ノードが保持しているリースと自ノードで判定する有効期限(System.nanoTime基準) */
+    private final Map<String, Long> leases = new ConcurrentHashMap<>();
+    private ScheduledExecutorService renewer;
+
+    /** リースの定期延長を開始します。 */
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(leaseMillis / 3, 1L);
+        renewer = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread t = new Thread(r, "idLockLeaseRenewer");
+            t.setDaemon(true);
+            return t;
+        });
+        renewer.scheduleWithFixedDelay(() -> {
+            try {
+                renew();
+            } catch (RuntimeException e) {
+                log.warn("IdLockのリース延長に失敗しました。", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** リースの定期延長を停止します。 */
+    @PreDestroy
+    public void stop() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean lock(Serializable id, long timeout) throws InterruptedException {
+        String key = key(id);
+        long deadline = System.nanoTime() + timeout;
+        while (true) {
+            long start = System.nanoTime();
+            if (tryAcquire(key)) {
+                leases.put(key, expire(start));
+                return true;
+            }
+            long remain = deadline - System.nanoTime();
+            if (timeout == 0 || (0 < timeout && remain <= 0)) {
+                return false;
+            }
+            long wait = timeout < 0 ? pollMillis : Math.min(pollMillis, TimeUnit.NANOSECONDS.toMillis(remain) + 1);
+            Thread.sleep(wait);
+        }
+    }
+
+    private boolean tryAcquire(String key) {
+        try {
+            return txNew().execute((status) -> IdLockLease.acquire(rep, key, node, leaseMillis));
+        } catch (PersistenceException | DataAccessException e) {
+            // 他ノードとの同時登録(一意制約違反)や行ロック待ちのタイムアウトは取得失敗として再試行する
+            log.debug("IdLockのリース取得に失敗しました。 [" + key + "]", e);
+            return false;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void unlock(Serializable id) {
+        String key = key(id);
+        leases.remove(key);
+        txNew().execute((status) -> IdLockLease.release(rep, key, node));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isValid(Serializable id) {
+        Long expire = leases.get(key(id));
+        return expire != null && 0 < expire - System.nanoTime();
+    }
+
+    /**
+     * 自ノードが保持するリースの有効期限を一括で延長します。
+     * <p>延長できなかったリースは失効として保持対象から除外します。
+     * @return 延長できたリース件数
+     */
+    public int renew() {
+        Map<String, Long> current = new HashMap<>(leases);
+        if (current.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        Set<String> renewed = txNew().execute((status) -> IdLockLease.renew(rep, node, current.keySet(), leaseMillis));
+        List<String> expired = new ArrayList<>();
+        current.forEach((key, expire) -> {
+            // 延長中に解放/再取得されたリースは対象外
+            if (renewed.contains(key)) {
+                leases.replace(key, expire, expire(start));
+            } else if (leases.remove(key, expire)) {
+                expired.add(key);
+            }
+        });
+        if (!expired.isEmpty()) {
+            log.warn("有効期限切れで失効したIdLockのリースがあります。 " + expired);
+        }
+        return renewed.size();
+    }
+
+    private long expire(long start) {
+        return start + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+    }
+
+    /** リースのキーを返します。(型の異なる同値のID ( 1L と "1" 等 ) は別のキーとなります) */
+    private String key(Serializable id) {
+        return id.getClass().getName() + ":" + id;
+    }
+
+    private TransactionTemplate txNew() {
+        TransactionTemplate template = new TransactionTemplate(tx);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+}
@@ -0,0 +1,35 @@
+package sample.context.lock;
+
+import java.io.Serializable;
+
+import sample.ValidationException.ErrorKeys;
+import sample.context.lock.IdLockHandler.LockType;
+
+/**
+ * IDロックを規定時間内に取得できなかった時の例外を表現します。
+ * <p>対象情報が他の処理で利用中である事を示すため、時間をおいた再実行で解消される可能性があります。
+ */
+public class IdLockBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Serializable id;
+    private final LockType lockType;
+
+    public IdLockBusyException(Serializable id, LockType lockType) {
+        super(ErrorKeys.IdLockBusy);
+        this.id = id;
+        this.lockType = lockType;
+    }
+
+    /** ロック対象のIDを返します。 */
+    public Serializable getId() {
+        return id;
+    }
+
+    /** 要求したロック種別を返します。 */
+    public LockType getLockType() {
+        return lockType;
+    }
+
+}
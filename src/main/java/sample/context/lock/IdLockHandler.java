@@ -2,19 +2,71 @@ package sample.context.lock;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Value;
 import sample.InvocationException;
+import sample.context.Dto;
+import sample.context.lock.IdLockProvider.InMemoryIdLockProvider;
 
 /**
  * ID単位のロックを表現します。
+ * <p>ロックの管理領域はIDのハッシュ値でストライプ(分割)されているため、異なるIDに対するロック要求が
+ * 単一のモニタで直列化される事はありません。ロック待ちはストライプのモニタ外で行われます。
+ * <p>ロックはIDの参照が無くなった時点で破棄されるため、扱うIDの種類が増えてもメモリは増え続けません。
+ * <p>待ち時間を限定したい時はタイムアウト指定または即時判定(tryCall)を利用してください。
+ * ロックを取得できなかった時は{@link IdLockBusyException}が発生します。
+ * <p>複数ノードで運用する時は{@link IdLockProvider}を登録してください。プロセス内のロックを取得した上で、
+ * プロセス内で最初の保持者となった時のみプロバイダからノード単位のロックを取得します。
  * low: ここではシンプルに口座単位のIDロックのみをターゲットにします。
- * low: 通常はDBのロックテーブルに"for update"要求で悲観的ロックをとったりしますが、サンプルなのでメモリロックにしてます。
+ * low: 既定はプロセス内のメモリロックのみです。DBのリーステーブルを用いる時は{@link DbIdLockProvider}を利用してください。
  */
+@ConfigurationProperties(prefix = "extension.lock")
 public class IdLockHandler {
+    public static final int DefaultStripeSize = 64;
+
+    private LockStripe[] stripes;
+    @Autowired(required = false)
+    private IdLockProvider provider = new InMemoryIdLockProvider();
 
-    private Map<Serializable, ReentrantReadWriteLock> lockMap = new HashMap<>();
+    public IdLockHandler() {
+        this(DefaultStripeSize);
+    }
+
+    public IdLockHandler(int stripeSize) {
+        setStripeSize(stripeSize);
+    }
+
+    /**
+     * ストライプ数を設定します。(2の累乗に切り上げられます)
+     * <p>ロック管理領域を再生成するため、起動時の設定用途でのみ利用してください。
+     */
+    public void setStripeSize(int stripeSize) {
+        int size = 1;
+        while (size < stripeSize) {
+            size <<= 1;
+        }
+        LockStripe[] stripes = new LockStripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new LockStripe();
+        }
+        this.stripes = stripes;
+    }
+
+    /** ストライプ数を返します。 */
+    public int getStripeSize() {
+        return stripes.length;
+    }
+
+    /** ノードを跨いだロックを提供するプロバイダを設定します。(未設定時はプロセス内のみで排他します) */
+    public void setProvider(IdLockProvider provider) {
+        this.provider = provider;
+    }
 
     /** IDロック上で処理を実行します。 */
     public void call(Serializable id, LockType lockType, final Runnable command) {
@@ -30,51 +82,381 @@ public class IdLockHandler {
         } else {
             readLock(id);
         }
+        return callAndUnlock(id, callable);
+    }
+
+    /**
+     * IDロック上で処理を実行します。
+     * <p>指定時間内にロックを取得できなかった時は{@link IdLockBusyException}が発生します。
+     */
+    public void call(Serializable id, LockType lockType, long timeout, TimeUnit unit, final Runnable command) {
+        call(id, lockType, timeout, unit, () -> {
+            command.run();
+            return true;
+        });
+    }
+
+    public <T> T call(Serializable id, LockType lockType, long timeout, TimeUnit unit, final Supplier<T> callable) {
+        if (!tryLock(id, lockType, timeout, unit)) {
+            throw new IdLockBusyException(id, lockType);
+        }
+        return callAndUnlock(id, callable);
+    }
+
+    /**
+     * IDロックを即時に取得できた時のみ処理を実行します。
+     * <p>ロックが他で保持されている時は待機せずに{@link IdLockBusyException}が発生します。
+     */
+    public void tryCall(Serializable id, LockType lockType, final Runnable command) {
+        call(id, lockType, 0, TimeUnit.MILLISECONDS, command);
+    }
+
+    public <T> T tryCall(Serializable id, LockType lockType, final Supplier<T> callable) {
+        return call(id, lockType, 0, TimeUnit.MILLISECONDS, callable);
+    }
+
+    /**
+     * 複数のIDロック上で処理を実行します。
+     * <p>ロックはIDの正規順序(同一型のComparableは自然順序、それ以外は型名/文字列表現順)で取得され、
+     * 処理完了後に取得と逆順で全て解放されます。
+     * 取得順序が呼び出し元に依存しないため、口座を跨ぐ処理同士でデッドロックは発生しません。
+     * <p>同一IDに異なるロック種別が指定された時は書込ロックを優先します。
+     */
+    public void callAll(Map<? extends Serializable, LockType> locks, final Runnable command) {
+        callAll(locks, () -> {
+            command.run();
+            return true;
+        });
+    }
+
+    public <T> T callAll(Map<? extends Serializable, LockType> locks, final Supplier<T> callable) {
+        List<Serializable> held = new ArrayList<>(locks.size());
+        try {
+            ordered(locks).forEach((id, lockType) -> {
+                lock(id, lockType);
+                held.add(id);
+            });
+        } catch (RuntimeException | Error e) {
+            unlockAll(held);
+            throw e;
+        }
+        return callAndUnlock(held, callable);
+    }
+
+    /** 全てのIDに同一のロック種別を用いて、複数のIDロック上で処理を実行します。 */
+    public void callAll(Collection<? extends Serializable> ids, LockType lockType, final Runnable command) {
+        callAll(locks(ids, lockType), command);
+    }
+
+    public <T> T callAll(Collection<? extends Serializable> ids, LockType lockType, final Supplier<T> callable) {
+        return callAll(locks(ids, lockType), callable);
+    }
+
+    /**
+     * 複数のIDロック上で処理を実行します。
+     * <p>全てのロックを指定時間内に取得できなかった時は取得済のロックを解放した上で
+     * {@link IdLockBusyException}が発生します。
+     */
+    public void callAll(Map<? extends Serializable, LockType> locks, long timeout, TimeUnit unit,
+            final Runnable command) {
+        callAll(locks, timeout, unit, () -> {
+            command.run();
+            return true;
+        });
+    }
+
+    public <T> T callAll(Map<? extends Serializable, LockType> locks, long timeout, TimeUnit unit,
+            final Supplier<T> callable) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Serializable> held = new ArrayList<>(locks.size());
         try {
-            return callable.get();
+            ordered(locks).forEach((id, lockType) -> {
+                long remain = timeout <= 0 ? 0L : Math.max(deadline - System.nanoTime(), 1L);
+                if (!tryLock(id, lockType, remain, TimeUnit.NANOSECONDS)) {
+                    throw new IdLockBusyException(id, lockType);
+                }
+                held.add(id);
+            });
+        } catch (RuntimeException | Error e) {
+            unlockAll(held);
+            throw e;
+        }
+        return callAndUnlock(held, callable);
+    }
+
+    private Map<Serializable, LockType> locks(Collection<? extends Serializable> ids, LockType lockType) {
+        Map<Serializable, LockType> locks = new HashMap<>();
+        ids.forEach((id) -> locks.put(id, lockType));
+        return locks;
+    }
+
+    private SortedMap<Serializable, LockType> ordered(Map<? extends Serializable, LockType> locks) {
+        SortedMap<Serializable, LockType> ordered = new TreeMap<>(IdLockHandler::compareId);
+        locks.forEach((id, lockType) -> ordered.merge(Objects.requireNonNull(id), lockType,
+                (a, b) -> a.isWrite() ? a : b));
+        return ordered;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareId(Serializable a, Serializable b) {
+        if (a.getClass() == b.getClass() && a instanceof Comparable) {
+            return ((Comparable) a).compareTo(b);
+        }
+        int ret = a.getClass().getName().compareTo(b.getClass().getName());
+        return ret != 0 ? ret : a.toString().compareTo(b.toString());
+    }
+
+    private <T> T callAndUnlock(Serializable id, final Supplier<T> callable) {
+        return callAndUnlock(Collections.singletonList(id), callable);
+    }
+
+    private <T> T callAndUnlock(List<Serializable> ids, final Supplier<T> callable) {
+        try {
+            T ret = callable.get();
+            // 処理中にノード単位のロックが失効していた時は処理結果を返さずに失敗させる
+            ids.forEach(this::verify);
+            return ret;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
             throw new InvocationException("error.Exception", e);
         } finally {
-            unlock(id);
+            unlockAll(ids);
+        }
+    }
+
+    /** 取得と逆順でロックを解放します。 */
+    private void unlockAll(List<Serializable> ids) {
+        for (int i = ids.size() - 1; 0 <= i; i--) {
+            unlock(ids.get(i));
         }
     }
 
     private void writeLock(final Serializable id) {
-        Optional.of(id).ifPresent((v) -> {
-            synchronized (lockMap) {
-                idLock(v).writeLock().lock();
+        lock(id, LockType.Write);
+    }
+
+    public void readLock(final Serializable id) {
+        lock(id, LockType.Read);
+    }
+
+    private void lock(final Serializable id, LockType lockType) {
+        acquire(id, lockType, -1L);
+    }
+
+    private boolean tryLock(final Serializable id, LockType lockType, long timeout, TimeUnit unit) {
+        return acquire(id, lockType, Math.max(unit.toNanos(timeout), 0L));
+    }
+
+    /**
+     * プロセス内のロックを取得した後、プロバイダからノード単位のロックを取得します。
+     * @param timeout 待機時間(nanos)。0は即時判定、負数は無期限待機
+     */
+    private boolean acquire(final Serializable id, LockType lockType, long timeout) {
+        LockStripe stripe = stripe(id);
+        IdLock idLock = stripe.acquire(id);
+        Lock lock = idLock.lock(lockType);
+        long deadline = System.nanoTime() + timeout;
+        boolean locked = false;
+        boolean leased = false;
+        try {
+            if (timeout < 0) {
+                lock.lock();
+                locked = true;
+            } else if (timeout == 0) {
+                // 0指定時は待機者の有無に関わらず即時判定する
+                locked = lock.tryLock();
+            } else {
+                locked = lock.tryLock(timeout, TimeUnit.NANOSECONDS);
             }
-        });
+            if (locked) {
+                long remain = timeout <= 0 ? timeout : Math.max(deadline - System.nanoTime(), 0L);
+                leased = idLock.lease(provider, id, remain);
+            }
+            return leased;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvocationException("error.Exception", e);
+        } finally {
+            if (leased) {
+                stripe.hold(idLock);
+            } else {
+                if (locked) {
+                    lock.unlock();
+                }
+                stripe.release(id, idLock, false);
+            }
+        }
     }
 
-    private ReentrantReadWriteLock idLock(final Serializable id) {
-        if (!lockMap.containsKey(id)) {
-            lockMap.put(id, new ReentrantReadWriteLock());
+    private LockStripe stripe(final Serializable id) {
+        int h = Objects.requireNonNull(id).hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    public void unlock(final Serializable id) {
+        LockStripe stripe = stripe(id);
+        IdLock idLock = stripe.get(id)
+                .orElseThrow(() -> new IllegalMonitorStateException("lock is not held. [" + id + "]"));
+        if (idLock.isWriteLockedByCurrentThread()) {
+            idLock.writeLock().unlock();
+        } else {
+            idLock.readLock().unlock();
+        }
+        try {
+            idLock.unlease(provider, id);
+        } finally {
+            stripe.release(id, idLock, true);
         }
-        return lockMap.get(id);
     }
 
-    public void readLock(final Serializable id) {
-        Optional.of(id).ifPresent((v) -> {
-            synchronized (lockMap) {
-                idLock(v).readLock().lock();
+    /**
+     * 現在のスレッドが保持するIDロックが有効か検証します。
+     * <p>ノード単位のロック(リース)が失効していた時は、他ノードが同一IDを処理している可能性があるため
+     * {@link IdLockBusyException}が発生します。トランザクションのコミット前に呼び出す事で、失効後の更新の確定を防げます。
+     * low: 検証からコミットまでの僅かな間の失効は検知できません。リース有効期間は処理時間に対して十分に長くしてください。
+     */
+    public void verify(final Serializable id) {
+        IdLock idLock = stripe(id).get(id)
+                .orElseThrow(() -> new IllegalMonitorStateException("lock is not held. [" + id + "]"));
+        boolean write = idLock.isWriteLockedByCurrentThread();
+        if (!write && idLock.getReadHoldCount() == 0) {
+            throw new IllegalMonitorStateException("lock is not held. [" + id + "]");
+        }
+        if (!provider.isValid(id)) {
+            throw new IdLockBusyException(id, write ? LockType.Write : LockType.Read);
+        }
+    }
+
+    /** 保持/待機されているIDロックの件数を返します。 */
+    public int liveLocks() {
+        int count = 0;
+        for (LockStripe stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    /**
+     * 保持/待機されているIDロックの状態一覧を返します。
+     * <p>ロック保持時間の降順で返します。診断用途で利用してください。
+     */
+    public List<IdLockInfo> locks() {
+        long now = System.currentTimeMillis();
+        List<IdLockInfo> list = new ArrayList<>();
+        for (LockStripe stripe : stripes) {
+            stripe.each((id, idLock) -> list.add(idLock.info(id, now)));
+        }
+        list.sort(Comparator.comparingLong(IdLockInfo::getHoldMillis).reversed());
+        return list;
+    }
+
+    /**
+     * ID毎のロックを保持するストライプを表現します。
+     * <p>モニタはロックの取得/解放時の参照数管理のみに利用され、ロック待ちの間は保持されません。
+     * 参照数(ロック保持者と待機者の合計)が0になったロックは管理領域から除去されます。
+     */
+    private static class LockStripe {
+        private final Map<Serializable, IdLock> lockMap = new HashMap<>();
+
+        synchronized IdLock acquire(final Serializable id) {
+            IdLock idLock = lockMap.computeIfAbsent(id, (k) -> new IdLock());
+            idLock.refs++;
+            return idLock;
+        }
+
+        synchronized void hold(final IdLock idLock) {
+            if (idLock.holds++ == 0) {
+                idLock.since = System.currentTimeMillis();
             }
-        });
+        }
+
+        synchronized Optional<IdLock> get(final Serializable id) {
+            return Optional.ofNullable(lockMap.get(id));
+        }
+
+        synchronized void release(final Serializable id, final IdLock idLock, boolean held) {
+            if (held && --idLock.holds == 0) {
+                idLock.since = 0L;
+            }
+            if (--idLock.refs <= 0) {
+                lockMap.remove(id);
+            }
+        }
+
+        synchronized int size() {
+            return lockMap.size();
+        }
+
+        synchronized void each(final BiConsumer<Serializable, IdLock> consumer) {
+            lockMap.forEach(consumer);
+        }
     }
 
-    public void unlock(final Serializable id) {
-        Optional.of(id).ifPresent((v) -> {
-            synchronized (lockMap) {
-                ReentrantReadWriteLock idLock = idLock(v);
-                if (idLock.isWriteLockedByCurrentThread()) {
-                    idLock.writeLock().unlock();
-                } else {
-                    idLock.readLock().unlock();
-                }
+    /** 参照数を保持するIDロック。参照数はストライプのモニタ下でのみ変更されます。 */
+    private static class IdLock extends ReentrantReadWriteLock {
+        private static final long serialVersionUID = 1L;
+        /** ロック保持者と待機者の合計 */
+        private int refs;
+        /** ロック保持数(再入含む) */
+        private int holds;
+        /** ロック保持開始日時(未保持時は0) */
+        private long since;
+        /** プロバイダからのロックを共有しているプロセス内の保持数 */
+        private int leases;
+
+        Lock lock(LockType lockType) {
+            return lockType.isWrite() ? writeLock() : readLock();
+        }
+
+        /**
+         * プロバイダからノード単位のロックを取得します。
+         * <p>プロセス内で既に保持されている時(再入や読取ロックの共有)はプロバイダへ要求しません。
+         * low: 初回取得の待機中は同一IDの後続の読取ロックもモニタで待たされます。
+         */
+        synchronized boolean lease(IdLockProvider provider, Serializable id, long timeout) throws InterruptedException {
+            if (leases == 0 && !provider.lock(id, timeout)) {
+                return false;
             }
-        });
+            leases++;
+            return true;
+        }
+
+        synchronized void unlease(IdLockProvider provider, Serializable id) {
+            if (--leases == 0) {
+                provider.unlock(id);
+            }
+        }
+
+        IdLockInfo info(Serializable id, long now) {
+            Thread owner = getOwner();
+            return new IdLockInfo(
+                    id.toString(),
+                    isWriteLocked() ? LockType.Write : LockType.Read,
+                    owner != null ? owner.getName() : null,
+                    getReadLockCount(),
+                    getQueueLength(),
+                    since == 0L ? 0L : now - since);
+        }
+    }
+
+    /** IDロックの診断情報を表現します。 */
+    @Value
+    public static class IdLockInfo implements Dto {
+        private static final long serialVersionUID = 1L;
+        /** ID */
+        private String id;
+        /** 保持されているロック種別 */
+        private LockType lockType;
+        /** 書込ロックを保持しているスレッド名(読取ロック時はnull) */
+        private String owner;
+        /** 読取ロックの保持数 */
+        private int readHolds;
+        /** ロック待機中のスレッド数(概算) */
+        private int waiters;
+        /** ロック保持時間(msec) */
+        private long holdMillis;
     }
 
     /**
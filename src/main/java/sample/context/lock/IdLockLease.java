@@ -0,0 +1,93 @@
+package sample.context.lock;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import lombok.*;
+import sample.context.orm.*;
+
+/**
+ * ノードを跨いだIDロックのリースを表現します。
+ * <p>リースは保持ノードが期限内に更新し続ける事で有効となり、期限切れのリースは他ノードから奪取できます。
+ * 行ロックの取得は条件付の更新文で行うため、"for update"の挙動がDB毎に異なっても同様に動作します。
+ * low: 有効期限は各ノードの時刻で判定するため、ノード間の時刻は同期されている前提です。
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class IdLockLease extends OrmActiveRecord<IdLockLease> {
+    private static final long serialVersionUID = 1l;
+    /** 一括更新時のIN句の最大件数 */
+    private static final int RenewChunkSize = 500;
+
+    /** ロック対象ID */
+    @Id
+    @Size(max = 120)
+    private String id;
+    /** 保持ノード */
+    @NotNull
+    @Size(max = 120)
+    private String owner;
+    /** リース取得日時 */
+    @NotNull
+    private LocalDateTime leaseDate;
+    /** リース有効期限 */
+    @NotNull
+    private LocalDateTime expireDate;
+
+    /**
+     * リースを取得します。
+     * <p>自ノードが保持済、または有効期限切れのリースは奪取します。リースが存在しない時は新規に登録します。
+     * 他ノードと同時に登録した時は一意制約違反として例外が発生します。
+     * @return リースを取得できた時はtrue
+     */
+    public static boolean acquire(final SystemRepository rep, String id, String owner, long leaseMillis) {
+        LocalDateTime now = rep.dh().time().date();
+        LocalDateTime expire = now.plusNanos(leaseMillis * 1000000L);
+        int updated = rep.tmpl().execute(
+                "update IdLockLease l set l.owner=?1, l.leaseDate=?2, l.expireDate=?3 where l.id=?4 and (l.owner=?1 or l.expireDate<?2)",
+                owner, now, expire, id);
+        if (0 < updated) {
+            return true;
+        }
+        if (rep.exists(IdLockLease.class, id)) {
+            return false;
+        }
+        new IdLockLease(id, owner, now, expire).save(rep);
+        rep.flush();
+        return true;
+    }
+
+    /** 自ノードが保持するリースを解放します。 */
+    public static boolean release(final SystemRepository rep, String id, String owner) {
+        return 0 < rep.tmpl().execute("delete from IdLockLease l where l.id=?1 and l.owner=?2", id, owner);
+    }
+
+    /**
+     * 自ノードが保持するリースの有効期限を一括で延長します。
+     * @return 延長できたリースのID一覧(含まれないIDは期限切れで他ノードに奪取されています)
+     */
+    public static Set<String> renew(final SystemRepository rep, String owner, Collection<String> ids, long leaseMillis) {
+        LocalDateTime expire = rep.dh().time().date().plusNanos(leaseMillis * 1000000L);
+        List<String> list = new ArrayList<>(ids);
+        Set<String> renewed = new HashSet<>();
+        for (int i = 0; i < list.size(); i += RenewChunkSize) {
+            List<String> chunk = list.subList(i, Math.min(i + RenewChunkSize, list.size()));
+            int updated = rep.tmpl().execute(
+                    "update IdLockLease l set l.expireDate=?1 where l.owner=?2 and l.id in (?3)", expire, owner, chunk);
+            if (updated == chunk.size()) {
+                renewed.addAll(chunk);
+            } else if (0 < updated) {
+                renewed.addAll(rep.tmpl().<String> find(
+                        "select l.id from IdLockLease l where l.owner=?1 and l.id in (?2)", owner, chunk));
+            }
+        }
+        return renewed;
+    }
+
+}
@@ -0,0 +1,49 @@
+package sample.context.lock;
+
+import java.io.Serializable;
+
+/**
+ * プロセス(ノード)を跨いだIDロックを提供します。
+ * <p>{@link IdLockHandler}はプロセス内のロックを取得した後、同一IDに対してプロセス内で最初の保持者となった時のみ
+ * 本プロバイダへロックを要求します。再入や同一プロセス内の他スレッドによる保持はプロセス内で完結するため、
+ * 実装側ではノード単位の排他のみを考慮してください。
+ */
+public interface IdLockProvider {
+
+    /**
+     * IDに対するノード単位のロックを取得します。
+     * @param id ロック対象のID
+     * @param timeout 待機時間(nanos)。0は即時判定、負数は無期限待機
+     * @return ロックを取得できた時はtrue
+     */
+    boolean lock(Serializable id, long timeout) throws InterruptedException;
+
+    /** IDに対するノード単位のロックを解放します。 */
+    void unlock(Serializable id);
+
+    /**
+     * 取得済のノード単位のロックが有効な時はtrue。
+     * <p>リースの有効期限切れ等で失効したロックは他ノードが取得している可能性があるため、
+     * 保持者は処理結果を確定せずに失敗させてください。
+     */
+    default boolean isValid(Serializable id) {
+        return true;
+    }
+
+    /**
+     * プロセス内のロックのみで排他するプロバイダ。(既定)
+     * <p>単一ノードで運用する時に利用してください。
+     */
+    public static class InMemoryIdLockProvider implements IdLockProvider {
+        @Override
+        public boolean lock(Serializable id, long timeout) {
+            return true;
+        }
+
+        @Override
+        public void unlock(Serializable id) {
+            // nothing.
+        }
+    }
+
+}
@@ -1,8 +1,11 @@
 package sample.context.orm;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.time.*;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.persistence.EntityManager;
 import javax.persistence.criteria.*;
@@ -18,6 +21,9 @@ import sample.context.orm.Sort.SortOrder;
  * <p>Criteria の簡易的な取り扱いを可能にします。
  * <p>Criteria で利用する条件句は必要に応じて追加してください。
  * <p>ビルド結果としての CriteriaQuery は result* メソッドで受け取って下さい。
+ * <p>本クラスが提供する条件句/ソート条件のみで構築した検索は、有効な条件句の組合せ ( 形 ) を元に
+ * OrmTemplate が {@link OrmQueryCache} で JPQL を再利用します。 ( Criteria の SQL 変換は行われません )
+ * 任意の Predicate の追加や関連付け、 extension を指定した時は都度 Criteria を変換します。
  */
 public class OrmCriteria<T> {
     
@@ -31,6 +37,21 @@ public class OrmCriteria<T> {
     private final Root<T> root;
     private final Set<Predicate> predicates = new LinkedHashSet<>();
     private final Set<Order> orders = new LinkedHashSet<>();
+    /** DTO のコンストラクタ引数として取得するフィールド */
+    private final List<String> selections = new ArrayList<>();
+    /** 検索条件の形 ( 有効な条件句とソート条件の並び ) */
+    private final StringBuilder shape = new StringBuilder();
+    /** 形に対応する JPQL の条件句 ( JPQL の生成時のみ評価されます ) */
+    private final List<Supplier<String>> conditions = new ArrayList<>();
+    /** 形に対応する JPQL のソート句 */
+    private final List<String> orderBy = new ArrayList<>();
+    /** JPQL の条件句に紐付く引数 */
+    private final List<Object> args = new ArrayList<>();
+    /** 形で表現できない条件 ( 任意の Predicate や関連付け等 ) を含むか */
+    private boolean shapeless = false;
+    /** result で返した CriteriaQuery の条件句/ソート条件 ( 返却後の加工の検知に利用します ) */
+    private Predicate resultRestriction;
+    private List<Order> resultOrders;
 
     /** 指定したEntityクラスにエイリアスを紐付けたCriteriaを生成します。 */
     private OrmCriteria(EntityManager em, Class<T> clazz, String alias) {
@@ -69,6 +90,7 @@ public class OrmCriteria<T> {
      * <p>Join した要素は呼び出し元で保持して必要に応じて利用してください。
      */
     public <Y> Join<T, Y> join(String associationPath) {
+        shapeless = true;
         return root.join(associationPath);
     }
     
@@ -83,10 +105,15 @@ public class OrmCriteria<T> {
      * <p>複雑なクエリや集計関数は本メソッドで返却された query を元に追加構築してください。
      */
     public CriteriaQuery<T> result() {
-        return result(q -> q);
+        CriteriaQuery<T> q = query.where(predicates.toArray(new Predicate[0]));
+        q = orders.isEmpty() ? q : q.orderBy(orders.toArray(new Order[0]));
+        resultRestriction = q.getRestriction();
+        resultOrders = new ArrayList<>(q.getOrderList());
+        return q;
     }
     @SuppressWarnings("unchecked")
     public CriteriaQuery<T> result(Function<CriteriaQuery<?>, CriteriaQuery<?>> extension) {
+        shapeless = true;
         CriteriaQuery<T> q = query.where(predicates.toArray(new Predicate[0]));
         q = (CriteriaQuery<T>)extension.apply(q);
         return orders.isEmpty() ? q : q.orderBy(orders.toArray(new Order[0]));
@@ -108,11 +135,124 @@ public class OrmCriteria<T> {
         return (CriteriaQuery<Long>)extension.apply(q);
     }
 
+    /**
+     * 検索結果として取得するフィールドを指定します。
+     * <p>指定したフィールドは resultInto / OrmTemplate#findInto で DTO のコンストラクタ引数 ( 指定順 ) として利用されます。
+     */
+    public OrmCriteria<T> select(String... fields) {
+        selections.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    /**
+     * 取得したフィールドを引数に取るコンストラクタで DTO を生成する CriteriaQuery を返します。
+     * <p>select でフィールドを指定しない時は、 DTO のフィールド定義順に同じ名前のフィールドを取得します。
+     * ( Lombok の @Value 等で生成されるコンストラクタを想定しています )
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CriteriaQuery<R> resultInto(Class<R> resultClass) {
+        CriteriaQuery<R> q = builder.createQuery(resultClass);
+        q.from(clazz).alias(alias);
+        q.where(predicates.toArray(new Predicate[0]));
+        q.select(builder.construct(resultClass, selections(resultClass).stream()
+                .map(field -> root.get(field)).toArray(Selection[]::new)));
+        return orders.isEmpty() ? q : q.orderBy(orders.toArray(new Order[0]));
+    }
+
+    /** DTO のコンストラクタ引数として取得するフィールドを返します。 */
+    private List<String> selections(Class<?> resultClass) {
+        if (!selections.isEmpty()) {
+            return selections;
+        }
+        // low: getDeclaredFields は実質的に定義順で返されます ( Lombok のコンストラクタ生成と同じ前提です )
+        List<String> fields = new ArrayList<>();
+        for (Field field : resultClass.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                fields.add(field.getName());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 検索条件の形を表現するキーを返します。
+     * <p>形で表現できない条件を含む時や、 result で返した CriteriaQuery が加工されている時は null を返します。
+     * @param q 実行する CriteriaQuery ( OrmTemplate が result を呼び出す時は null )
+     */
+    String shape(final CriteriaQuery<?> q) {
+        if (shapeless) {
+            return null;
+        } else if (q != null && (q != query || resultOrders == null || q.getRestriction() != resultRestriction
+                || !q.getOrderList().equals(resultOrders) || q.isDistinct() || !q.getGroupList().isEmpty()
+                || q.getGroupRestriction() != null || q.getRoots().size() != 1
+                || (q.getSelection() != null && q.getSelection() != root))) {
+            return null;
+        }
+        return clazz.getName() + ":" + alias + ":" + shape;
+    }
+
+    /** 形に対応する JPQL を生成します。 */
+    String jpql() {
+        return "select " + alias + from() + orderBy();
+    }
+
+    /** 形に対応する DTO 生成 ( コンストラクタ式 ) の JPQL を生成します。 */
+    String jpqlInto(Class<?> resultClass) {
+        StringJoiner select = new StringJoiner(", ", "select new " + resultClass.getName() + "(", ")");
+        selections(resultClass).forEach(field -> select.add(path(field)));
+        return select + from() + orderBy();
+    }
+
+    /** DTO 生成時に取得するフィールドを表現するキーを返します。 ( 未指定時は DTO 毎に一意となります ) */
+    String selectionKey(Class<?> resultClass) {
+        return resultClass.getName() + (selections.isEmpty() ? "" : ":" + String.join(",", selections));
+    }
+
+    /** 形に対応する件数算出 JPQL を生成します。 */
+    String jpqlCount() {
+        return "select count(" + alias + ")" + from();
+    }
+
+    private String from() {
+        StringBuilder from = new StringBuilder(" from ")
+                .append(metamodel.entity(clazz).getName()).append(" ").append(alias);
+        for (int i = 0; i < conditions.size(); i++) {
+            from.append(i == 0 ? " where " : " and ").append(conditions.get(i).get());
+        }
+        return from.toString();
+    }
+
+    private String orderBy() {
+        return orderBy.isEmpty() ? "" : " order by " + String.join(", ", orderBy);
+    }
+
+    /** 形に対応する JPQL の引数を返します。 */
+    Object[] args() {
+        return args.toArray();
+    }
+
+    /** 形を構成する条件句を追加します。 */
+    private void shape(String token, final Supplier<String> condition) {
+        shape.append(token).append(';');
+        conditions.add(condition);
+    }
+
+    /** JPQL の引数を追加してその位置 ( 1 開始 ) を返します。 */
+    private int arg(final Object value) {
+        args.add(value);
+        return args.size();
+    }
+
+    private String path(String field) {
+        return alias + "." + field;
+    }
+
     /**
      * 条件句 ( or 条件含む ) を追加します。
      * <p>引数には CriteriaBuilder で生成した Predicate を追加してください。
      */
     public OrmCriteria<T> add(final Predicate predicate) {
+        this.shapeless = true;
         this.predicates.add(predicate);
         return this;
     }
@@ -127,12 +267,16 @@ public class OrmCriteria<T> {
 
     /** null 一致条件を付与します。 */
     public OrmCriteria<T> isNull(String field) {
-        return add(builder.isNull(root.get(field)));
+        predicates.add(builder.isNull(root.get(field)));
+        shape("nu:" + field, () -> path(field) + " is null");
+        return this;
     }
 
     /** null 不一致条件を付与します。 */
     public OrmCriteria<T> isNotNull(String field) {
-        return add(builder.isNotNull(root.get(field)));
+        predicates.add(builder.isNotNull(root.get(field)));
+        shape("nn:" + field, () -> path(field) + " is not null");
+        return this;
     }
 
     /** 一致条件を付与します。( 値が null の時は無視されます ) */
@@ -142,7 +286,13 @@ public class OrmCriteria<T> {
     
     public OrmCriteria<T> equal(Path<?> path, String field, final Object value) {
         if (isValid(value)) {
-            add(builder.equal(path.get(field), value));
+            if (path != root) {
+                add(builder.equal(path.get(field), value));
+                return this;
+            }
+            predicates.add(builder.equal(path.get(field), value));
+            int n = arg(value);
+            shape("eq:" + field, () -> path(field) + " = ?" + n);
         }
         return this;
     }
@@ -160,21 +310,27 @@ public class OrmCriteria<T> {
     /** 不一致条件を付与します。(値がnullの時は無視されます) */
     public OrmCriteria<T> equalNot(String field, final Object value) {
         if (isValid(value)) {
-            add(builder.notEqual(root.get(field), value));
+            predicates.add(builder.notEqual(root.get(field), value));
+            int n = arg(value);
+            shape("ne:" + field, () -> path(field) + " <> ?" + n);
         }
         return this;
     }
 
     /** 一致条件を付与します。(値がnullの時は無視されます) */
     public OrmCriteria<T> equalProp(String field, final String fieldOther) {
-        add(builder.equal(root.get(field), root.get(fieldOther)));
+        predicates.add(builder.equal(root.get(field), root.get(fieldOther)));
+        shape("ep:" + field + "=" + fieldOther, () -> path(field) + " = " + path(fieldOther));
         return this;
     }
 
     /** like条件を付与します。(値がnullの時は無視されます) */
     public OrmCriteria<T> like(String field, String value, MatchMode mode) {
         if (isValid(value)) {
-            add(builder.like(root.get(field), mode.toMatchString(value)));
+            String match = mode.toMatchString(value);
+            predicates.add(builder.like(root.get(field), match));
+            int n = arg(match);
+            shape("lk:" + field, () -> path(field) + " like ?" + n);
         }
         return this;
     }
@@ -182,11 +338,21 @@ public class OrmCriteria<T> {
     /** like条件を付与します。[複数フィールドに対するOR結合](値がnullの時は無視されます) */
     public OrmCriteria<T> like(String[] fields, String value, MatchMode mode) {
         if (isValid(value)) {
+            String match = mode.toMatchString(value);
             Predicate[] predicates = new Predicate[fields.length];
+            int[] n = new int[fields.length];
             for (int i = 0; i < fields.length; i++) {
-                predicates[i] = builder.like(root.get(fields[i]), mode.toMatchString(value));
+                predicates[i] = builder.like(root.get(fields[i]), match);
+                n[i] = arg(match);
             }
-            add(builder.or(predicates));
+            this.predicates.add(builder.or(predicates));
+            shape("lk:" + String.join(",", fields), () -> {
+                StringJoiner condition = new StringJoiner(" or ", "(", ")");
+                for (int i = 0; i < fields.length; i++) {
+                    condition.add(path(fields[i]) + " like ?" + n[i]);
+                }
+                return condition.toString();
+            });
         }
         return this;
     }
@@ -194,7 +360,9 @@ public class OrmCriteria<T> {
     /** in条件を付与します。 */
     public OrmCriteria<T> in(String field, final Object[] values) {
         if (values != null && 0 < values.length) {
-            add(root.get(field).in(values));
+            predicates.add(root.get(field).in(values));
+            int n = arg(Arrays.asList(values));
+            shape("in:" + field, () -> path(field) + " in ?" + n);
         }
         return this;
     }
@@ -203,6 +371,7 @@ public class OrmCriteria<T> {
     public OrmCriteria<T> between(String field, final Date from, final Date to) {
         if (from != null && to != null) {
             predicates.add(builder.between(root.get(field), from, to));
+            shapeBetween(field, from, to);
         }
         return this;
     }
@@ -211,6 +380,7 @@ public class OrmCriteria<T> {
     public OrmCriteria<T> between(String field, final LocalDate from, final LocalDate to) {
         if (from != null && to != null) {
             predicates.add(builder.between(root.get(field), from, to));
+            shapeBetween(field, from, to);
         }
         return this;
     }
@@ -219,6 +389,7 @@ public class OrmCriteria<T> {
     public OrmCriteria<T> between(String field, final LocalDateTime from, final LocalDateTime to) {
         if (from != null && to != null) {
             predicates.add(builder.between(root.get(field), from, to));
+            shapeBetween(field, from, to);
         }
         return this;
     }
@@ -227,14 +398,22 @@ public class OrmCriteria<T> {
     public OrmCriteria<T> between(String field, final String from, final String to) {
         if (isValid(from) && isValid(to)) {
             predicates.add(builder.between(root.get(field), from, to));
+            shapeBetween(field, from, to);
         }
         return this;
     }
 
+    private void shapeBetween(String field, final Object from, final Object to) {
+        int n = arg(from);
+        int m = arg(to);
+        shape("bt:" + field, () -> path(field) + " between ?" + n + " and ?" + m);
+    }
+
     /** [フィールド]&gt;=[値] 条件を付与します。(値がnullの時は無視されます) */
     public <Y extends Comparable<? super Y>> OrmCriteria<T> gte(String field, final Y value) {
         if (isValid(value)) {
-            add(builder.greaterThanOrEqualTo(root.get(field), value));
+            predicates.add(builder.greaterThanOrEqualTo(root.get(field), value));
+            shapeCompare("ge", field, ">=", value);
         }
         return this;
     }
@@ -242,7 +421,8 @@ public class OrmCriteria<T> {
     /** [フィールド]&gt;[値] 条件を付与します。(値がnullの時は無視されます) */
     public <Y extends Comparable<? super Y>> OrmCriteria<T> gt(String field, final Y value) {
         if (isValid(value)) {
-            add(builder.greaterThan(root.get(field), value));
+            predicates.add(builder.greaterThan(root.get(field), value));
+            shapeCompare("gt", field, ">", value);
         }
         return this;
     }
@@ -250,7 +430,8 @@ public class OrmCriteria<T> {
     /** [フィールド]&lt;=[値] 条件を付与します。 */
     public <Y extends Comparable<? super Y>> OrmCriteria<T> lte(String field, final Y value) {
         if (isValid(value)) {
-            add(builder.lessThanOrEqualTo(root.get(field), value));
+            predicates.add(builder.lessThanOrEqualTo(root.get(field), value));
+            shapeCompare("le", field, "<=", value);
         }
         return this;
     }
@@ -258,11 +439,79 @@ public class OrmCriteria<T> {
     /** [フィールド]&lt;[値] 条件を付与します。 */
     public <Y extends Comparable<? super Y>>  OrmCriteria<T> lt(String field, final Y value) {
         if (isValid(value)) {
-            add(builder.lessThan(root.get(field), value));
+            predicates.add(builder.lessThan(root.get(field), value));
+            shapeCompare("lt", field, "<", value);
+        }
+        return this;
+    }
+
+    /**
+     * キーセット方式のページング条件を付与します。(keysがnullの時は無視されます)
+     * <p>ソート条件の並びで keys の行より後ろにある行のみを対象とします。
+     * ( 例: startDate desc, id desc の時は startDate&lt;=?1 and (startDate&lt;?1 or (startDate=?1 and id&lt;?2)) )
+     * <p>先頭キーの範囲条件を併せて付与するため、ソート条件と同じ並びの索引があれば範囲検索となります。
+     * @param sort ソート条件 (末尾のキーで行が一意となるようにしてください)
+     * @param keys ソート条件の各キーに対応する値
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public OrmCriteria<T> seek(final Sort sort, final Object[] keys) {
+        if (keys == null) {
+            return this;
+        }
+        List<SortOrder> orders = sort.getOrders();
+        if (orders.size() != keys.length) {
+            throw new IllegalArgumentException("Keys mismatch [" + orders.size() + "] [" + keys.length + "]");
+        } else if (orders.isEmpty()) {
+            return this;
         }
+        Predicate[] predicates = new Predicate[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            Predicate[] ands = new Predicate[i + 1];
+            for (int j = 0; j < i; j++) {
+                ands[j] = builder.equal(root.get(orders.get(j).getProperty()), keys[j]);
+            }
+            Expression<Comparable> path = root.get(orders.get(i).getProperty());
+            Comparable key = (Comparable) keys[i];
+            ands[i] = orders.get(i).isAscending() ? builder.greaterThan(path, key) : builder.lessThan(path, key);
+            predicates[i] = builder.and(ands);
+        }
+        Expression<Comparable> first = root.get(orders.get(0).getProperty());
+        Comparable firstKey = (Comparable) keys[0];
+        this.predicates.add(orders.get(0).isAscending()
+                ? builder.greaterThanOrEqualTo(first, firstKey) : builder.lessThanOrEqualTo(first, firstKey));
+        this.predicates.add(builder.or(predicates));
+        shapeSeek(orders, keys);
         return this;
     }
 
+    private void shapeSeek(final List<SortOrder> orders, final Object[] keys) {
+        int[] n = new int[keys.length];
+        StringBuilder token = new StringBuilder("sk:");
+        for (int i = 0; i < keys.length; i++) {
+            n[i] = arg(keys[i]);
+            token.append(orders.get(i).isAscending() ? '+' : '-').append(orders.get(i).getProperty());
+        }
+        shape(token.toString(), () -> {
+            String first = path(orders.get(0).getProperty());
+            StringJoiner condition = new StringJoiner(" or ", first
+                    + (orders.get(0).isAscending() ? " >= ?" : " <= ?") + n[0] + " and (", ")");
+            for (int i = 0; i < n.length; i++) {
+                StringJoiner and = new StringJoiner(" and ", "(", ")");
+                for (int j = 0; j < i; j++) {
+                    and.add(path(orders.get(j).getProperty()) + " = ?" + n[j]);
+                }
+                and.add(path(orders.get(i).getProperty()) + (orders.get(i).isAscending() ? " > ?" : " < ?") + n[i]);
+                condition.add(and.toString());
+            }
+            return condition.toString();
+        });
+    }
+
+    private void shapeCompare(String token, String field, String operator, final Object value) {
+        int n = arg(value);
+        shape(token + ":" + field, () -> path(field) + " " + operator + " ?" + n);
+    }
+
     /** ソート条件を加えます。 */
     public OrmCriteria<T> sort(Sort sort) {
         sort.getOrders().forEach(this::sort);
@@ -282,12 +531,16 @@ public class OrmCriteria<T> {
     /** 昇順条件を加えます。 */
     public OrmCriteria<T> sort(String field) {
         orders.add(builder.asc(root.get(field)));
+        shape.append('+').append(field).append(';');
+        orderBy.add(path(field) + " asc");
         return this;
     }
 
     /** 降順条件を加えます。 */
     public OrmCriteria<T> sortDesc(String field) {
         orders.add(builder.desc(root.get(field)));
+        shape.append('-').append(field).append(';');
+        orderBy.add(path(field) + " desc");
         return this;
     }
     
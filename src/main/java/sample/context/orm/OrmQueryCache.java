@@ -0,0 +1,72 @@
+package sample.context.orm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.*;
+
+/**
+ * 検索条件の形 ( 有効な条件句やソート条件の組合せ ) 毎に生成済の JPQL を保持します。
+ * <p>{@link OrmCriteria} は同じ形の検索で JPQL を再生成せず、引数のみを紐付け直します。
+ * 生成された JPQL は文字列として同一になるため、 Hibernate のクエリプランキャッシュで解析結果も再利用されます。
+ * <p>本コンポーネントが登録されていない時、 JPQL は検索の都度生成されます。
+ * low: 検索条件の形はアプリケーション内で有限となる想定です。最大保持数を超えた形は保持せずに都度生成します。
+ */
+@ConfigurationProperties(prefix = "extension.orm.query-cache")
+public class OrmQueryCache {
+
+    /** 最大保持数 */
+    @Getter
+    @Setter
+    private int maxSize = 2000;
+    private final Map<String, String> queries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 形に対応する JPQL を返します。
+     * <p>保持していない時は builder で生成した上で保持します。
+     * @param shape 検索条件の形を表現するキー
+     * @param builder JPQL を生成する関数
+     */
+    public String get(String shape, final Supplier<String> builder) {
+        String jpql = queries.get(shape);
+        if (jpql != null) {
+            hits.increment();
+            return jpql;
+        }
+        misses.increment();
+        jpql = builder.get();
+        if (queries.size() < maxSize) {
+            queries.putIfAbsent(shape, jpql);
+        }
+        return jpql;
+    }
+
+    /** キャッシュに存在した件数を返します。 */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** キャッシュに存在せず JPQL を生成した件数を返します。 */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** 保持している JPQL の件数を返します。 */
+    public int size() {
+        return queries.size();
+    }
+
+    /** 保持している JPQL と計測値を破棄します。 */
+    public void clear() {
+        queries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+}
@@ -7,6 +7,7 @@ import javax.persistence.*;
 import javax.sql.DataSource;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
@@ -28,11 +29,17 @@ import sample.context.Entity;
  */
 @Setter
 public abstract class OrmRepository implements Repository {
+    /** 一括登録時の標準のバッチ件数 */
+    public static final int DefaultBatchSize = 50;
 
     @Autowired
     private DomainHelper dh;
     @Autowired(required = false)
     private OrmInterceptor interceptor;
+    @Autowired(required = false)
+    private PagingCounter counter;
+    @Autowired(required = false)
+    private OrmQueryCache queryCache;
 
     /**
      * 管理するEntityManagerを返します。
@@ -55,11 +62,11 @@ public abstract class OrmRepository implements Repository {
      * <p>OrmTemplateは呼出しの都度生成されます。
      */
     public OrmTemplate tmpl() {
-        return new OrmTemplate(em());
+        return new OrmTemplate(em(), null, counter, queryCache);
     }
     
     public OrmTemplate tmpl(OrmQueryMetadata metadata) {
-        return new OrmTemplate(em(), metadata);
+        return new OrmTemplate(em(), metadata, counter, queryCache);
     }
 
     /** 指定したEntityクラスを軸にしたCriteriaを生成します。 */
@@ -121,6 +128,53 @@ public abstract class OrmRepository implements Repository {
         return entity;
     }
 
+    /**
+     * 複数のエンティティを一括で登録します。
+     * <p>{@link #DefaultBatchSize} 件単位で JDBC バッチとして INSERT を発行します。
+     * @see #saveAll(Iterable, int)
+     */
+    public <T extends Entity> List<T> saveAll(Iterable<T> entities) {
+        return saveAll(entities, DefaultBatchSize);
+    }
+
+    /**
+     * 複数のエンティティを一括で登録します。
+     * <p>batchSize 件単位で JDBC バッチとして INSERT を発行し、登録したエンティティをセッションキャッシュから切り離します。
+     * 大量件数を登録する際に利用してください。
+     * <p>戻り値のエンティティは管理対象外となる点に注意してください。 ( 呼出し前に取得していたエンティティは影響を受けません )
+     * また batchSize 件毎に同期を行うため、呼出し前に変更したエンティティもその時点で DB へ反映されます。
+     * low: ID採番が IDENTITY の Entity は Hibernate の仕様上バッチ化されません。シーケンスを利用してください。
+     * @param entities 登録するエンティティ一覧
+     * @param batchSize 1バッチ当たりの件数
+     * @return 登録したエンティティ一覧(採番済)
+     */
+    public <T extends Entity> List<T> saveAll(Iterable<T> entities, int batchSize) {
+        Session session = em().unwrap(Session.class);
+        Integer original = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            List<T> list = new ArrayList<>();
+            for (T entity : entities) {
+                list.add(save(entity));
+                if (list.size() % batchSize == 0) {
+                    flushAndDetach(list.subList(list.size() - batchSize, list.size()));
+                }
+            }
+            flushAndDetach(list.subList(list.size() - list.size() % batchSize, list.size()));
+            return list;
+        } finally {
+            session.setJdbcBatchSize(original);
+        }
+    }
+
+    private void flushAndDetach(List<? extends Entity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        flush();
+        entities.forEach(em()::detach);
+    }
+
     /** {@inheritDoc} */
     @Override
     public <T extends Entity> T saveOrUpdate(T entity) {
@@ -172,6 +226,13 @@ public abstract class OrmRepository implements Repository {
         private String[] packageToScan;
         /** Entityとして登録するクラス。(packageToScanとどちらかを設定) */
         private Class<?>[] annotatedClasses;
+        /** JDBCバッチ更新の件数。(0以下の時はバッチ更新を行いません) */
+        private int batchSize = DefaultBatchSize;
+
+        public OrmRepositoryProperties() {
+            // シーケンス採番をプール(allocationSize単位の先取り)で行う
+            getHibernate().setUseNewIdGeneratorMappings(true);
+        }
 
         public LocalContainerEntityManagerFactoryBean entityManagerFactoryBean(String name, final DataSource dataSource) {
             EntityManagerFactoryBuilder emfBuilder = new EntityManagerFactoryBuilder(
@@ -179,7 +240,7 @@ public abstract class OrmRepository implements Repository {
             Builder builder = emfBuilder
                     .dataSource(dataSource)
                     .persistenceUnit(name)
-                    .properties(getHibernateProperties(dataSource))
+                    .properties(hibernateProperties(dataSource))
                     .jta(false);
             if (ArrayUtils.isNotEmpty(annotatedClasses)) {
                 builder.packages(annotatedClasses);
@@ -189,6 +250,16 @@ public abstract class OrmRepository implements Repository {
             return builder.build();
         }
         
+        private Map<String, String> hibernateProperties(final DataSource dataSource) {
+            Map<String, String> props = getHibernateProperties(dataSource);
+            if (0 < batchSize) {
+                props.putIfAbsent("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+                props.putIfAbsent("hibernate.order_inserts", "true");
+                props.putIfAbsent("hibernate.order_updates", "true");
+            }
+            return props;
+        }
+
         private JpaVendorAdapter vendorAdapter() {
             AbstractJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
             adapter.setShowSql(isShowSql());
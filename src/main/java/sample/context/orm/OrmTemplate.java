@@ -1,40 +1,107 @@
 package sample.context.orm;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
+import java.util.regex.Pattern;
+import java.util.stream.*;
 
 import javax.persistence.*;
 import javax.persistence.criteria.CriteriaQuery;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.springframework.beans.*;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.util.Assert;
 
 import sample.ValidationException;
 import sample.ValidationException.ErrorKeys;
+import sample.context.orm.Pagination.CountType;
+import sample.context.orm.Sort.SortOrder;
 
 /**
  * JPA の EntityManager に対する簡易アクセサ。 ( セッション毎に生成して利用してください )
  * <p>EntityManager のメソッドで利用したい処理があれば必要に応じてラップメソッドを追加してください。
  */
 public class OrmTemplate {
+    /** スクロール検索時の標準の JDBC フェッチ件数 */
+    public static final int DefaultFetchSize = 500;
+    /** キーセット方式の cursor におけるキー値の区切り文字 */
+    private static final String CursorSeparator = ".";
 
     private final EntityManager em;
     private final Optional<OrmQueryMetadata> metadata;
+    private final Optional<PagingCounter> counter;
+    private final Optional<OrmQueryCache> queryCache;
+    private int fetchSize = DefaultFetchSize;
 
     public OrmTemplate(EntityManager em) {
-        this.em = em;
-        this.metadata = Optional.empty();
+        this(em, null, null);
     }
     
     public OrmTemplate(EntityManager em, OrmQueryMetadata metadata) {
+        this(em, metadata, null);
+    }
+
+    public OrmTemplate(EntityManager em, OrmQueryMetadata metadata, PagingCounter counter) {
+        this(em, metadata, counter, null);
+    }
+
+    public OrmTemplate(EntityManager em, OrmQueryMetadata metadata, PagingCounter counter,
+            OrmQueryCache queryCache) {
         this.em = em;
         this.metadata = Optional.ofNullable(metadata);
+        this.counter = Optional.ofNullable(counter);
+        this.queryCache = Optional.ofNullable(queryCache);
+    }
+
+    /**
+     * スクロール検索 ( stream* / forEach* ) 時の JDBC フェッチ件数を設定します。
+     * <p>処理済のエンティティはフェッチ件数を処理する毎に同期した上でセッションキャッシュから切り離されます。
+     */
+    public OrmTemplate fetchSize(int fetchSize) {
+        Assert.isTrue(0 < fetchSize, "fetchSize must be positive");
+        this.fetchSize = fetchSize;
+        return this;
     }
 
     private <T> TypedQuery<T> query(final CriteriaQuery<T> query) {
-        TypedQuery<T> q = em.createQuery(query);
+        return metadata(em.createQuery(query));
+    }
+
+    /**
+     * OrmCriteria で構築した CriteriaQuery の検索クエリを生成します。
+     * <p>OrmCriteria が提供する条件句のみで構築されている時は、検索条件の形毎に保持した JPQL へ引数を紐付けます。
+     * ( CriteriaQuery から JPQL への変換を省略します )
+     */
+    private <T> TypedQuery<T> query(final OrmCriteria<T> criteria, final CriteriaQuery<T> query) {
+        String shape = criteria.shape(query);
+        if (shape == null) {
+            return query(query);
+        }
+        String jpql = jpql(shape, criteria::jpql);
+        return metadata(bindPositional(em.createQuery(jpql, criteria.entityClass()), criteria.args()));
+    }
+
+    /** 検索条件の形に対応する JPQL を返します。 ( OrmQueryCache が登録されていない時は都度生成します ) */
+    private String jpql(String shape, final Supplier<String> builder) {
+        return queryCache.map(cache -> cache.get(shape, builder)).orElseGet(builder);
+    }
+
+    /** OrmCriteria の検索クエリを生成します。 ( extension が null の時は OrmCriteria#result を利用します ) */
+    private <T> TypedQuery<T> query(final OrmCriteria<T> criteria,
+            Function<CriteriaQuery<?>, CriteriaQuery<?>> extension) {
+        return extension == null ? query(criteria, criteria.result()) : query(criteria.result(extension));
+    }
+
+    private <T> TypedQuery<T> metadata(final TypedQuery<T> q) {
         metadata.ifPresent(meta -> {
             meta.hints().forEach((k, v) -> q.setHint(k, v)); 
             meta.lockMode().ifPresent(l -> q.setLockMode(l)); 
@@ -42,6 +109,13 @@ public class OrmTemplate {
         return q;
     }
 
+    private <T> TypedQuery<T> bindPositional(final TypedQuery<T> query, final Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            query.setParameter(i + 1, args[i]);
+        }
+        return query;
+    }
+
     /** 指定したエンティティの ID 値を取得します。 */
     @SuppressWarnings("unchecked")
     public <T> Serializable idValue(T entity) {
@@ -72,13 +146,48 @@ public class OrmTemplate {
      */   
     public <T> PagingList<T> find(final CriteriaQuery<T> criteria, Optional<CriteriaQuery<Long>> criteriaCount, final Pagination page) {
         Assert.notNull(page, "page is required");
-        long total = criteriaCount.map(cnt -> query(cnt).getResultList().get(0)).orElse(-1L);
-        if (total == 0) return new PagingList<>(new ArrayList<>(), new Pagination(page, 0));
-        
         TypedQuery<T> query = query(criteria);
         if (0 < page.getPage()) query.setFirstResult(page.getFirstResult());
         if (0 < page.getSize()) query.setMaxResults(page.getSize());
-        return new PagingList<T>(query.getResultList(), new Pagination(page, total));
+        return paging(query, criteriaCount.map(this::countQuery).orElse(null), page);
+    }
+
+    /** 件数算出クエリを生成する関数を返します。 ( 別コネクションで算出する時はロック等のメタ情報を付与しません ) */
+    private Function<EntityManager, Query> countQuery(final CriteriaQuery<Long> criteriaCount) {
+        return (target) -> target == em ? query(criteriaCount) : target.createQuery(criteriaCount);
+    }
+
+    /**
+     * OrmCriteria の件数算出クエリを生成する関数を返します。
+     * <p>検索条件の形で表現できる時は保持した JPQL を利用します。 ( 引数は呼出時点の条件で確定します )
+     */
+    private Function<EntityManager, Query> countQuery(final OrmCriteria<?> criteria,
+            Function<CriteriaQuery<?>, CriteriaQuery<?>> extension) {
+        String shape = extension == null ? criteria.shape(null) : null;
+        if (shape == null) {
+            return countQuery(extension == null ? criteria.resultCount() : criteria.resultCount(extension));
+        }
+        String jpql = jpql(shape + "#count", criteria::jpqlCount);
+        Object[] args = criteria.args();
+        return (target) -> {
+            TypedQuery<Long> q = bindPositional(target.createQuery(jpql, Long.class), args);
+            return target == em ? metadata(q) : q;
+        };
+    }
+
+    /**
+     * Criteria で検索した結果を逐次取得する Stream を返します。
+     * <p>件数に依らず一定のメモリで処理したい時に利用してください。処理済のエンティティは
+     * フェッチ件数毎に同期した上でセッションキャッシュから切り離されます。
+     * <p>Stream は try-with-resources 等で必ずクローズしてください。 ( 末尾まで処理した時は自動的にクローズされます )
+     */
+    public <T> Stream<T> stream(final CriteriaQuery<T> criteria) {
+        return scroll(query(criteria));
+    }
+
+    /** Criteria で検索した結果を逐次処理します。 */
+    public <T> void forEach(final CriteriaQuery<T> criteria, final Consumer<? super T> consumer) {
+        forEach(stream(criteria), consumer);
     }
 
 
@@ -87,11 +196,11 @@ public class OrmTemplate {
      * <p>クロージャ戻り値は引数に取るOrmCriteriaのresult*の実行結果を返すようにしてください。
      */
     public <T> Optional<T> get(Class<T> entityClass, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return get(func.apply(OrmCriteria.of(em, entityClass)));
+        return find(entityClass, func).stream().findFirst();
     }
 
     public <T> Optional<T> get(Class<T> entityClass, String alias, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return get(func.apply(OrmCriteria.of(em, entityClass, alias)));
+        return find(entityClass, alias, func).stream().findFirst();
     }
 
     /**
@@ -99,11 +208,11 @@ public class OrmTemplate {
      * <p>クロージャ戻り値は引数に取るOrmCriteriaのresult*の実行結果を返すようにしてください。
      */
     public <T> T load(Class<T> entityClass, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return load(func.apply(OrmCriteria.of(em, entityClass)));
+        return get(entityClass, func).orElseThrow(() -> new ValidationException(ErrorKeys.EntityNotFound));
     }
 
     public <T> T load(Class<T> entityClass, String alias, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return load(func.apply(OrmCriteria.of(em, entityClass, alias)));
+        return get(entityClass, alias, func).orElseThrow(() -> new ValidationException(ErrorKeys.EntityNotFound));
     }
 
     /**
@@ -111,48 +220,221 @@ public class OrmTemplate {
      * <p>クロージャ戻り値は引数に取るOrmCriteriaのresult*の実行結果を返すようにしてください。
      */
     public <T> List<T> find(Class<T> entityClass, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return find(func.apply(OrmCriteria.of(em, entityClass)));
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
+        return query(criteria, func.apply(criteria)).getResultList();
     }
 
     public <T> List<T> find(Class<T> entityClass, String alias, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
-        return find(func.apply(OrmCriteria.of(em, entityClass, alias)));
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass, alias);
+        return query(criteria, func.apply(criteria)).getResultList();
+    }
+
+    /**
+     * Criteriaで検索した結果を逐次取得する Stream を返します。
+     * <p>クロージャ戻り値は引数に取るOrmCriteriaのresult*の実行結果を返すようにしてください。
+     */
+    public <T> Stream<T> stream(Class<T> entityClass, Function<OrmCriteria<T>, CriteriaQuery<T>> func) {
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
+        return scroll(query(criteria, func.apply(criteria)));
+    }
+
+    /**
+     * Criteriaで検索した結果を逐次処理します。
+     * <p>クロージャ戻り値は引数に取るOrmCriteriaのresult*の実行結果を返すようにしてください。
+     */
+    public <T> void forEach(Class<T> entityClass, Function<OrmCriteria<T>, CriteriaQuery<T>> func,
+            final Consumer<? super T> consumer) {
+        forEach(stream(entityClass, func), consumer);
+    }
+
+    /**
+     * Criteria で検索した結果を DTO で返します。
+     * <p>DTO は OrmCriteria#select で指定したフィールド ( 未指定時は DTO のフィールド定義順に同名のフィールド ) を
+     * 引数に取るコンストラクタで、 JDBC の行から直接生成されます。エンティティを経由しないため、セッションキャッシュへの
+     * 登録やスナップショットの保持、変更検知、遅延ロード用のプロキシ生成は行われません。参照専用の検索で利用してください。
+     * <p>OrmQueryMetadata のロックモードは適用されません。
+     */
+    public <T, R> List<R> findInto(Class<T> entityClass, Class<R> resultClass,
+            Function<OrmCriteria<T>, OrmCriteria<T>> func) {
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
+        func.apply(criteria);
+        return queryInto(criteria, resultClass).getResultList();
+    }
+
+    /**
+     * Criteria でページング検索した結果を DTO で返します。
+     * <p>Pagination に設定された検索条件は無視されます。 OrmCriteria 構築時に設定するようにしてください。
+     * キーセット方式には対応していません。
+     */
+    public <T, R> PagingList<R> findInto(Class<T> entityClass, Class<R> resultClass,
+            Function<OrmCriteria<T>, OrmCriteria<T>> func, final Pagination page) {
+        Assert.isTrue(!page.isKeyset(), "keyset paging is not supported");
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
+        func.apply(criteria);
+        Function<EntityManager, Query> countQuery = page.isIgnoreTotal() ? null : countQuery(criteria, null);
+        TypedQuery<R> query = queryInto(criteria, resultClass);
+        if (0 < page.getPage()) query.setFirstResult(page.getFirstResult());
+        if (0 < page.getSize()) query.setMaxResults(page.getSize());
+        return paging(query, countQuery, page);
+    }
+
+    /** Criteria で検索した結果を DTO として逐次取得する Stream を返します。 */
+    public <T, R> Stream<R> streamInto(Class<T> entityClass, Class<R> resultClass,
+            Function<OrmCriteria<T>, OrmCriteria<T>> func) {
+        OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
+        func.apply(criteria);
+        return scroll(queryInto(criteria, resultClass));
+    }
+
+    /** DTO を生成する検索クエリを返します。 ( 検索条件の形で表現できる時は保持した JPQL を利用します ) */
+    private <T, R> TypedQuery<R> queryInto(final OrmCriteria<T> criteria, Class<R> resultClass) {
+        String shape = criteria.shape(null);
+        TypedQuery<R> q = shape == null ? em.createQuery(criteria.resultInto(resultClass))
+                : bindPositional(em.createQuery(jpql(
+                        shape + "#into:" + criteria.selectionKey(resultClass), () -> criteria.jpqlInto(resultClass)),
+                        resultClass), criteria.args());
+        metadata.ifPresent(meta -> meta.hints().forEach((k, v) -> q.setHint(k, v)));
+        return q;
     }
 
     /**
      * Criteriaでページング検索します。
      * <p>Pagination に設定された検索条件は無視されます。 OrmCriteria 構築時に設定するようにしてください。
+     * <p>Pagination#keyset 指定時はキーセット方式で検索します。 ( ソート条件は Pagination に設定してください )
      */
     public <T> PagingList<T> find(Class<T> entityClass, Function<OrmCriteria<T>, OrmCriteria<T>> func,
             final Pagination page) {
         OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
         func.apply(criteria);
-        return find(criteria.result(), page.isIgnoreTotal() ? Optional.empty() : Optional.of(criteria.resultCount()), page);
+        return find(criteria, null, page);
     }
     
     public <T> PagingList<T> find(Class<T> entityClass, String alias, Function<OrmCriteria<T>, OrmCriteria<T>> func,
             final Pagination page) {
         OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass, alias);
         func.apply(criteria);
-        return find(criteria.result(), page.isIgnoreTotal() ? Optional.empty() : Optional.of(criteria.resultCount()), page);
+        return find(criteria, null, page);
     }
     
     /**
      * Criteriaでページング検索します。
      * <p>CriteriaQuery が提供する subquery や groupBy 等の構文を利用したい時はこちらの extension で指定してください。
      * <p>Pagination に設定された検索条件は無視されます。 OrmCriteria 構築時に設定するようにしてください。
+     * <p>Pagination#keyset 指定時はキーセット方式で検索します。 ( ソート条件は Pagination に設定してください )
      */
     public <T> PagingList<T> find(Class<T> entityClass, Function<OrmCriteria<T>, OrmCriteria<T>> func,
             Function<CriteriaQuery<?>, CriteriaQuery<?>> extension, final Pagination page) {
         OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass);
         func.apply(criteria);
-        return find(criteria.result(extension), page.isIgnoreTotal() ? Optional.empty() : Optional.of(criteria.resultCount(extension)), page);
+        return find(criteria, extension, page);
     }
     
     public <T> PagingList<T> find(Class<T> entityClass, String alias, Function<OrmCriteria<T>, OrmCriteria<T>> func,
             Function<CriteriaQuery<?>, CriteriaQuery<?>> extension, final Pagination page) {
         OrmCriteria<T> criteria = OrmCriteria.of(em, entityClass, alias);
         func.apply(criteria);
-        return find(criteria.result(extension), page.isIgnoreTotal() ? Optional.empty() : Optional.of(criteria.resultCount(extension)), page);
+        return find(criteria, extension, page);
+    }
+
+    /** OrmCriteria でページング検索します。 ( extension が null の時は検索条件の形毎に JPQL を再利用します ) */
+    private <T> PagingList<T> find(final OrmCriteria<T> criteria,
+            Function<CriteriaQuery<?>, CriteriaQuery<?>> extension, final Pagination page) {
+        if (page.isKeyset()) {
+            return findByKeyset(criteria, extension, page);
+        }
+        Function<EntityManager, Query> countQuery = page.isIgnoreTotal() ? null : countQuery(criteria, extension);
+        TypedQuery<T> query = query(criteria, extension);
+        if (0 < page.getPage()) query.setFirstResult(page.getFirstResult());
+        if (0 < page.getSize()) query.setMaxResults(page.getSize());
+        return paging(query, countQuery, page);
+    }
+
+    /**
+     * キーセット方式でページング検索します。
+     * <p>Pagination のソート条件 ( 末尾に ID を補完 ) の並びで cursor の行より後ろを size 件検索します。
+     * 開始件数を読み飛ばさないため、ページの深さに依らず同じコストで検索できます。
+     * <p>トータル件数は cursor 未指定 ( 先頭ページ ) の時のみ Pagination#countType に従って算出します。
+     * <p>並び順は Pagination のソート条件のみから構築するため、 OrmCriteria にソート条件を設定した時は例外とします。
+     * low: ソート条件のキーには null を取らないフィールドを指定してください。
+     */
+    private <T> PagingList<T> findByKeyset(final OrmCriteria<T> criteria,
+            Function<CriteriaQuery<?>, CriteriaQuery<?>> extension, final Pagination page) {
+        Assert.isTrue(0 < page.getSize(), "size must be positive");
+        // emptySort はソート条件を保持する時に true
+        Assert.isTrue(!criteria.emptySort(), "keyset paging requires the sort to be set on Pagination, not on the criteria");
+        Sort sort = keysetSort(criteria.entityClass(), page.getSort());
+        Function<EntityManager, Query> countQuery = page.getCursor() == null
+                ? countQuery(criteria, extension) : null;
+        CountType type = countType(page, countQuery);
+        Supplier<Long> total = count(type, countQuery);
+        if (isEmpty(type, total)) {
+            return new PagingList<>(new ArrayList<>(), new Pagination(page, 0, null), type, false);
+        }
+
+        criteria.seek(sort, decodeCursor(criteria, sort, page.getCursor())).sort(sort);
+        List<T> list = query(criteria, extension).setMaxResults(page.getSize() + 1).getResultList();
+        if (list.size() <= page.getSize()) {
+            return new PagingList<>(list, new Pagination(page, total.get(), null), type, false);
+        }
+        List<T> paged = new ArrayList<>(list.subList(0, page.getSize()));
+        String nextCursor = encodeCursor(sort, paged.get(paged.size() - 1));
+        return new PagingList<>(paged, new Pagination(page, total.get(), nextCursor), type, true);
+    }
+
+    /** ソート条件の末尾に ID を補完して行を一意に特定できるようにします。 */
+    private Sort keysetSort(Class<?> entityClass, final Sort sort) {
+        String idName = OrmUtils.entityInformation(em, entityClass).getIdAttribute().getName();
+        Sort keys = new Sort();
+        if (sort != null) {
+            sort.getOrders().forEach(keys::add);
+        }
+        List<SortOrder> orders = keys.getOrders();
+        if (orders.stream().noneMatch(order -> order.getProperty().equals(idName))) {
+            keys.add(new SortOrder(idName, orders.isEmpty() || orders.get(orders.size() - 1).isAscending()));
+        }
+        return keys;
+    }
+
+    /** 行のソートキー値から cursor を生成します。 ( 値毎に Base64 化して連結します ) */
+    private String encodeCursor(final Sort sort, final Object row) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        return sort.getOrders().stream().map(order -> {
+            Object v = wrapper.getPropertyValue(order.getProperty());
+            Assert.notNull(v, "keyset sort key must not be null [" + order.getProperty() + "]");
+            String str = v instanceof Enum ? ((Enum<?>) v).name() : v.toString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(str.getBytes(StandardCharsets.UTF_8));
+        }).collect(Collectors.joining(CursorSeparator));
+    }
+
+    /** cursor をソートキー値へ復元します。 ( cursor が null の時は null ) */
+    private Object[] decodeCursor(final OrmCriteria<?> criteria, final Sort sort, String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String[] values = cursor.split(Pattern.quote(CursorSeparator), -1);
+        List<SortOrder> orders = sort.getOrders();
+        if (values.length != orders.size()) {
+            throw new ValidationException("page.cursor", ErrorKeys.PagingCursor);
+        }
+        try {
+            Object[] keys = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                String str = new String(Base64.getUrlDecoder().decode(values[i]), StandardCharsets.UTF_8);
+                keys[i] = parseKey(str, criteria.root().get(orders.get(i).getProperty()).getJavaType());
+            }
+            return keys;
+        } catch (IllegalArgumentException | DateTimeException | ConversionException e) {
+            throw new ValidationException("page.cursor", ErrorKeys.PagingCursor);
+        }
+    }
+
+    private Object parseKey(String str, Class<?> type) {
+        if (type == LocalDate.class) {
+            return LocalDate.parse(str);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(str);
+        }
+        return DefaultConversionService.getSharedInstance().convert(str, type);
     }
 
     /**
@@ -175,7 +457,17 @@ public class OrmTemplate {
 
     /** 対象 Entity を全件取得します。*/
     public <T> List<T> loadAll(final Class<T> entityClass) {
-        return find(OrmCriteria.of(em, entityClass).result());
+        return find(entityClass, (criteria) -> criteria.result());
+    }
+
+    /** 対象 Entity の全件を逐次取得する Stream を返します。 */
+    public <T> Stream<T> streamAll(final Class<T> entityClass) {
+        return stream(entityClass, (criteria) -> criteria.result());
+    }
+
+    /** 対象 Entity の全件を逐次処理します。 */
+    public <T> void forEachAll(final Class<T> entityClass, final Consumer<? super T> consumer) {
+        forEach(streamAll(entityClass), consumer);
     }
 
     /**
@@ -187,6 +479,77 @@ public class OrmTemplate {
         return bindArgs(em.createQuery(qlString), args).getResultList();
     }
 
+    /**
+     * JPQL で検索した結果を逐次取得する Stream を返します。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> Stream<T> stream(final String qlString, final Object... args) {
+        return scroll(bindArgs(em.createQuery(qlString), args));
+    }
+
+    /**
+     * JPQL で検索した結果を逐次処理します。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> void forEach(final String qlString, final Consumer<? super T> consumer, final Object... args) {
+        forEach(this.<T>stream(qlString, args), consumer);
+    }
+
+    /**
+     * JPQL をキーセット(キー昇順)単位に分割して逐次検索する Stream を返します。
+     * <p>qlString には最後の引数をキーとした条件 ( 例: "c.id>?3" ) とキー昇順のソートを含めてください。
+     * 検索は pageSize 件単位で遅延実行されるため、件数に依らず一定のメモリで処理できます。
+     * <p>ページの切り替え時に前ページのエンティティを同期した上でセッションキャッシュから切り離すため、
+     * 処理済のエンティティは切り替え後に変更しないでください。 ( 呼出し前に取得していたエンティティは影響を受けません )
+     * <p>args に Map は指定できません。
+     * @param qlString キー条件を含む JPQL
+     * @param pageSize 1 ページ当たりの検索件数
+     * @param keyMapper エンティティからキーを取得する関数
+     * @param startKey 検索開始キー ( このキーより大きいものが対象となります )
+     */
+    public <T, K> Stream<T> streamByKey(final String qlString, int pageSize, final Function<T, K> keyMapper,
+            K startKey, final Object... args) {
+        Assert.isTrue(0 < pageSize, "pageSize must be positive");
+        Iterator<T> itr = new Iterator<T>() {
+            private K lastKey = startKey;
+            private List<T> list = Collections.emptyList();
+            private Iterator<T> page = list.iterator();
+            private boolean last = false;
+
+            @Override
+            public boolean hasNext() {
+                if (page.hasNext()) {
+                    return true;
+                }
+                if (last) {
+                    return false;
+                }
+                detach(list);
+                Object[] pageArgs = Arrays.copyOf(args, args.length + 1);
+                pageArgs[args.length] = lastKey;
+                @SuppressWarnings("unchecked")
+                List<T> next = bindArgs(em.createQuery(qlString), pageArgs).setMaxResults(pageSize).getResultList();
+                list = next;
+                last = list.size() < pageSize;
+                if (!list.isEmpty()) {
+                    lastKey = keyMapper.apply(list.get(list.size() - 1));
+                }
+                page = list.iterator();
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(itr, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * JPQL でページング検索します。
      * <p>カウント句がうまく構築されない時はPagination#ignoreTotalをtrueにして、
@@ -196,9 +559,9 @@ public class OrmTemplate {
      */
     @SuppressWarnings("unchecked")
     public <T> PagingList<T> find(final String qlString, final Pagination page, final Object... args) {
-        long total = page.isIgnoreTotal() ? -1L : load(QueryUtils.createCountQueryFor(qlString), args);
-        List<T> list = bindArgs(em.createQuery(qlString), args, page).getResultList();
-        return new PagingList<>(list, new Pagination(page, total));
+        String countString = QueryUtils.createCountQueryFor(qlString);
+        return paging(bindArgs(em.createQuery(qlString), page, args),
+                (target) -> bindArgs(target.createQuery(countString), args), page);
     }
 
     /**
@@ -231,6 +594,24 @@ public class OrmTemplate {
         return bindArgs(em.createNamedQuery(name), args).getResultList();
     }
 
+    /**
+     * 定義済み JPQL で検索した結果を逐次取得する Stream を返します。
+     * <p>事前に name に合致する @NamedQuery 定義が必要です。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> Stream<T> streamNamed(final String name, final Object... args) {
+        return scroll(bindArgs(em.createNamedQuery(name), args));
+    }
+
+    /**
+     * 定義済み JPQL で検索した結果を逐次処理します。
+     * <p>事前に name に合致する @NamedQuery 定義が必要です。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> void forEachNamed(final String name, final Consumer<? super T> consumer, final Object... args) {
+        forEach(this.<T>streamNamed(name, args), consumer);
+    }
+
     /**
      * 定義済み JPQL でページング検索します。
      * <p>事前に name に合致する @NamedQuery 定義が必要です。
@@ -239,9 +620,8 @@ public class OrmTemplate {
      */
     @SuppressWarnings("unchecked")
     public <T> PagingList<T> findNamed(final String name, final String nameCount, final Pagination page, final Map<String, Object> args) {
-        long total = page.isIgnoreTotal() ? -1L : loadNamed(nameCount, args);
-        List<T> list = bindArgs(em.createNamedQuery(name), page, args).getResultList();
-        return new PagingList<>(list, new Pagination(page, total));
+        return paging(bindArgs(em.createNamedQuery(name), page, args),
+                (target) -> bindArgs(target.createNamedQuery(nameCount), args), page);
     }
 
     /**
@@ -263,6 +643,39 @@ public class OrmTemplate {
         return bindArgs(em.createNativeQuery(sql, clazz), args).getResultList();
     }
 
+    /**
+     * SQL で検索した結果を逐次取得する Stream を返します。
+     * <p>検索結果としてselectの値配列が返されます。 ( select の値が単一の時はその値 )
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> Stream<T> streamBySql(final String sql, final Object... args) {
+        return scroll(bindArgs(em.createNativeQuery(sql), args));
+    }
+
+    /**
+     * SQL で検索した結果を逐次取得する Stream を返します。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> Stream<T> streamBySql(String sql, Class<T> clazz, final Object... args) {
+        return scroll(bindArgs(em.createNativeQuery(sql, clazz), args));
+    }
+
+    /**
+     * SQL で検索した結果を逐次処理します。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> void forEachBySql(final String sql, final Consumer<? super T> consumer, final Object... args) {
+        forEach(this.<T>streamBySql(sql, args), consumer);
+    }
+
+    /**
+     * SQL で検索した結果を逐次処理します。
+     * <p>args に Map を指定した時は名前付き引数として取り扱います。 ( Map のキーには文字列を指定してください )
+     */
+    public <T> void forEachBySql(String sql, Class<T> clazz, final Consumer<? super T> consumer, final Object... args) {
+        forEach(streamBySql(sql, clazz, args), consumer);
+    }
+
     /**
      * SQL でページング検索します。
      * <p>検索結果として select の値配列一覧が返されます。
@@ -270,8 +683,8 @@ public class OrmTemplate {
      */
     @SuppressWarnings("unchecked")
     public <T> PagingList<T> findBySql(String sql, String sqlCount, final Pagination page, final Object... args) {
-        long total = page.isIgnoreTotal() ? -1L : findBySql(sqlCount, args).stream().findFirst().map(v -> Long.parseLong(v.toString())).orElse(0L);
-        return new PagingList<T>(bindArgs(em.createNativeQuery(sql), page, args).getResultList(), new Pagination(page, total));
+        return paging(bindArgs(em.createNativeQuery(sql), page, args),
+                (target) -> bindArgs(target.createNativeQuery(sqlCount), args), page);
     }
     
     /**
@@ -281,8 +694,8 @@ public class OrmTemplate {
      */
     @SuppressWarnings("unchecked")
     public <T> PagingList<T> findBySql(String sql, String sqlCount, Class<T> clazz, final Pagination page, final Object... args) {
-        long total = page.isIgnoreTotal() ? -1L : findBySql(sqlCount, args).stream().findFirst().map(v -> Long.parseLong(v.toString())).orElse(0L);
-        return new PagingList<T>(bindArgs(em.createNativeQuery(sql, clazz), page, args).getResultList(), new Pagination(page, total));
+        return paging(bindArgs(em.createNativeQuery(sql, clazz), page, args),
+                (target) -> bindArgs(target.createNativeQuery(sqlCount), args), page);
     }
 
     /**
@@ -315,6 +728,194 @@ public class OrmTemplate {
         proc.accept((StoredProcedureQuery)bindArgs(em.createStoredProcedureQuery(procedureName)));
     }
 
+    /**
+     * ページング条件を紐付けたクエリでページング検索します。
+     * <p>トータル件数は Pagination#countType に従って算出します。
+     * @param query ページング条件を紐付けた検索クエリ
+     * @param countQuery 件数算出クエリを生成する関数 ( 件数を算出しない時は null )
+     */
+    @SuppressWarnings("unchecked")
+    private <T> PagingList<T> paging(final Query query, final Function<EntityManager, Query> countQuery,
+            final Pagination page) {
+        CountType type = countType(page, countQuery);
+        Supplier<Long> total = count(type, countQuery);
+        if (isEmpty(type, total)) {
+            return new PagingList<>(new ArrayList<>(), new Pagination(page, 0), type, false);
+        }
+        if (type == CountType.HasNext) {
+            query.setMaxResults(page.getSize() + 1);
+            List<T> list = query.getResultList();
+            boolean hasNext = page.getSize() < list.size();
+            List<T> paged = hasNext ? new ArrayList<>(list.subList(0, page.getSize())) : list;
+            return new PagingList<>(paged, new Pagination(page, -1L), type, hasNext);
+        }
+        List<T> list = query.getResultList();
+        long count = total.get();
+        Boolean hasNext = type != null ? page.getFirstResult() + list.size() < count : null;
+        return new PagingList<>(list, new Pagination(page, count), type, hasNext);
+    }
+
+    /** トータル件数の算出方式を返します。 ( 算出しない時は null ) */
+    private CountType countType(final Pagination page, final Function<EntityManager, Query> countQuery) {
+        CountType type = Optional.ofNullable(page.getCountType()).orElse(CountType.Exact);
+        if (page.isIgnoreTotal() || (countQuery == null && type != CountType.HasNext)) {
+            return null;
+        } else if (type == CountType.HasNext && page.getSize() <= 0) {
+            return null;
+        } else if ((type == CountType.Cached || type == CountType.Async) && !counter.isPresent()) {
+            return CountType.Exact;
+        }
+        return type;
+    }
+
+    /**
+     * トータル件数を算出します。
+     * <p>Async の時は別コネクションで算出を開始し、戻り値の関数で算出結果を待ち合わせます。
+     * ( 別コネクションのため、実行中トランザクションの未コミットの変更は件数に含まれません )
+     * 件数を算出しない時は -1 を返します。
+     */
+    private Supplier<Long> count(CountType type, final Function<EntityManager, Query> countQuery) {
+        if (type == null || type == CountType.HasNext || countQuery == null) {
+            return () -> -1L;
+        } else if (type == CountType.Exact) {
+            long total = count(countQuery.apply(em));
+            return () -> total;
+        } else if (type == CountType.Cached) {
+            Query query = countQuery.apply(em);
+            long total = counter.get().cached(countKey(query), () -> count(query));
+            return () -> total;
+        }
+        EntityManager other = em.getEntityManagerFactory().createEntityManager();
+        Future<Long> future;
+        try {
+            // low: クエリの構築は呼出元スレッドで行い、実行のみを非同期で行う
+            Query query = countQuery.apply(other);
+            future = counter.get().async(() -> {
+                try {
+                    return count(query);
+                } finally {
+                    other.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            other.close();
+            throw e;
+        }
+        return () -> {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        };
+    }
+
+    private long count(final Query query) {
+        List<?> list = query.getResultList();
+        return list.isEmpty() ? 0L : ((Number) list.get(0)).longValue();
+    }
+
+    /** 件数が 0 と確定している時は true。 ( Async の時は待ち合わせを避けるため判定しません ) */
+    private boolean isEmpty(CountType type, final Supplier<Long> total) {
+        return (type == CountType.Exact || type == CountType.Cached) && total.get() == 0;
+    }
+
+    /** 件数キャッシュのキー ( データソース、クエリ文字列、引数値 ) を返します。 */
+    private String countKey(final Query query) {
+        org.hibernate.query.Query<?> q = query.unwrap(org.hibernate.query.Query.class);
+        StringBuilder key = new StringBuilder()
+                .append(System.identityHashCode(em.getEntityManagerFactory())).append(':').append(q.getQueryString());
+        q.getParameters().stream()
+                .map(param -> (param.getName() != null ? param.getName() : String.valueOf(param.getPosition()))
+                        + "=" + q.getParameterValue(param))
+                .sorted()
+                .forEach(param -> key.append('|').append(param));
+        return key.toString();
+    }
+
+    /**
+     * クエリの検索結果を逐次取得する Stream を返します。
+     * <p>検索は前方向のみのスクロール ( ScrollableResults ) で行い、 JDBC からは
+     * {@link #fetchSize(int)} 件単位で取得します。処理済のエンティティはフェッチ件数毎に同期した上で
+     * セッションキャッシュから切り離すため、件数に依らず一定のメモリで処理できます。
+     * <p>カーソルはトランザクション内でのみ有効です。 Stream は try-with-resources 等で必ずクローズしてください。
+     * ( 末尾まで処理した時は自動的にクローズされます )
+     * <p>切り離されるのは Stream が返したエンティティのみです。 ( 呼出し前に取得していたエンティティは影響を受けません )
+     * 処理済のエンティティは切り離し後に変更しても反映されないため、 sorted 等の全件を保持する中間操作は利用しないでください。
+     */
+    private <T> Stream<T> scroll(final Query query) {
+        @SuppressWarnings("unchecked")
+        org.hibernate.query.Query<T> q = query.unwrap(org.hibernate.query.Query.class);
+        final ScrollableResults results = q.setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+        Iterator<T> itr = new Iterator<T>() {
+            private final List<Object> processed = new ArrayList<>();
+            private boolean fetched = false;
+            private boolean exists = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!fetched) {
+                    if (processed.size() == fetchSize) {
+                        detach(processed);
+                        processed.clear();
+                    }
+                    exists = results.next();
+                    fetched = true;
+                    if (!exists) {
+                        results.close();
+                    }
+                }
+                return exists;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                fetched = false;
+                Object[] row = results.get();
+                processed.addAll(Arrays.asList(row));
+                return (T) (row.length == 1 ? row[0] : row);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(itr, Spliterator.ORDERED), false)
+                .onClose(results::close);
+    }
+
+    /**
+     * 処理済の検索結果を DB と同期した上で、含まれるエンティティのみをセッションキャッシュから切り離します。
+     * <p>スカラ値等のエンティティ以外の値は無視します。
+     */
+    private void detach(final Collection<?> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        for (Object row : rows) {
+            for (Object value : row instanceof Object[] ? (Object[]) row : new Object[] { row }) {
+                if (value instanceof sample.context.Entity && em.contains(value)) {
+                    em.detach(value);
+                }
+            }
+        }
+    }
+
+    private <T> void forEach(final Stream<T> stream, final Consumer<? super T> consumer) {
+        try (Stream<T> s = stream) {
+            s.forEach(consumer);
+        }
+    }
+
     /**
      * クエリに値を紐付けします。
      * <p>Map 指定時はキーに文字を指定します。それ以外は自動的に 1 開始のポジション指定をおこないます。
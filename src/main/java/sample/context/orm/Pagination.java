@@ -9,6 +9,9 @@ import sample.util.Calculator;
 
 /**
  * ページング情報を表現します。
+ * <p>標準では開始件数を指定する ( OFFSET ) 方式でページングします。 keyset を指定した時は
+ * ソート条件のキー値から生成される cursor を指定して、前ページの最終行以降を検索します。
+ * ( 深いページでも 1 ページ目と同じコストで検索できます )
  */
 @Data
 @AllArgsConstructor
@@ -23,27 +26,41 @@ public class Pagination implements Dto {
     private Long total;
     /** トータル件数算出を無視するか */
     private boolean ignoreTotal;
+    /** トータル件数の算出方式 (未指定時は Exact) */
+    private CountType countType;
     /** ソート条件 */
     private Sort sort;
+    /** キーセット方式でページングするか */
+    private boolean keyset;
+    /** キーセット方式の検索開始位置 (前ページの nextCursor。未指定時は先頭から) */
+    private String cursor;
+    /** キーセット方式の次ページの検索開始位置 (次ページが存在しない時はnull) */
+    private String nextCursor;
 
     public Pagination() {
         this(1);
     }
 
     public Pagination(int page) {
-        this(page, DefaultSize, null, false, new Sort());
+        this(page, DefaultSize, null, false, null, new Sort(), false, null, null);
     }
 
     public Pagination(int page, int size) {
-        this(page, size, null, false, new Sort());
+        this(page, size, null, false, null, new Sort(), false, null, null);
     }
 
     public Pagination(int page, int size, final Sort sort) {
-        this(page, size, null, false, sort);
+        this(page, size, null, false, null, sort, false, null, null);
     }
 
     public Pagination(final Pagination req, long total) {
-        this(req.getPage(), req.getSize(), total, false, req.getSort());
+        this(req.getPage(), req.getSize(), total, false, req.getCountType(), req.getSort(), req.isKeyset(),
+                req.getCursor(), null);
+    }
+
+    public Pagination(final Pagination req, long total, String nextCursor) {
+        this(req.getPage(), req.getSize(), total, false, req.getCountType(), req.getSort(), true, req.getCursor(),
+                nextCursor);
     }
 
     /** カウント算出を無効化します。 */
@@ -52,6 +69,24 @@ public class Pagination implements Dto {
         return this;
     }
 
+    /** トータル件数の算出方式を設定します。 */
+    public Pagination countType(CountType countType) {
+        this.countType = countType;
+        return this;
+    }
+
+    /** キーセット方式でページングします。 */
+    public Pagination keyset() {
+        this.keyset = true;
+        return this;
+    }
+
+    /** キーセット方式で指定した位置からページングします。 */
+    public Pagination keyset(String cursor) {
+        this.cursor = cursor;
+        return keyset();
+    }
+
     /** ソート指定が未指定の時は与えたソート条件で上書きします。 */
     public Pagination sortIfEmpty(SortOrder... orders) {
         if (sort != null)
@@ -70,4 +105,19 @@ public class Pagination implements Dto {
         return (page - 1) * size;
     }
 
+    /**
+     * トータル件数の算出方式を表現します。
+     * <p>Cached / Async は {@link PagingCounter} が登録されていない時に Exact として扱われます。
+     */
+    public static enum CountType {
+        /** ページ検索の都度、件数を算出します */
+        Exact,
+        /** 検索条件毎に算出した件数を一定時間再利用します */
+        Cached,
+        /** 件数を算出せず、 size+1 件を検索して次ページの有無のみを判定します */
+        HasNext,
+        /** ページ検索と並行して別コネクションで件数を算出します */
+        Async;
+    }
+
 }
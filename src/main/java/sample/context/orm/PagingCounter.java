@@ -0,0 +1,95 @@
+package sample.context.orm;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import javax.annotation.*;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.*;
+
+/**
+ * ページング検索におけるトータル件数の算出を補助します。
+ * <p>検索条件毎の件数キャッシュ ( {@link Pagination.CountType#Cached} ) と、ページ検索と並行して
+ * 件数を算出するワーカー ( {@link Pagination.CountType#Async} ) を管理します。
+ * <p>本コンポーネントが登録されていない時、両者は都度の件数算出 ( Exact ) として扱われます。
+ */
+@ConfigurationProperties(prefix = "extension.paging")
+public class PagingCounter {
+
+    /** 件数キャッシュの保持秒数 */
+    @Getter
+    @Setter
+    private int cacheSeconds = 30;
+    /** 件数キャッシュの最大保持数 */
+    @Getter
+    @Setter
+    private int cacheSize = 1000;
+    /** 非同期算出の同時実行数 */
+    @Getter
+    @Setter
+    private int concurrency = 4;
+    private final Map<String, CachedCount> cache = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    /** 非同期算出用のワーカーを開始します。 */
+    @PostConstruct
+    public void start() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, (r) -> {
+            Thread thread = new Thread(r, "paging-count-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** 非同期算出用のワーカーを停止します。 */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * キャッシュした件数を返します。
+     * <p>保持秒数を超えている時は count で再算出します。
+     * @param key 検索条件を表現するキー ( クエリ文字列と引数値 )
+     */
+    public long cached(String key, final LongSupplier count) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = cache.get(key);
+        if (cached != null && now < cached.getExpireMillis()) {
+            return cached.getTotal();
+        }
+        long total = count.getAsLong();
+        if (cacheSize <= cache.size()) {
+            cache.values().removeIf((v) -> v.getExpireMillis() <= now);
+            if (cacheSize <= cache.size()) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedCount(total, now + cacheSeconds * 1000L));
+        return total;
+    }
+
+    /** 件数キャッシュを破棄します。 */
+    public void evict() {
+        cache.clear();
+    }
+
+    /** 件数を非同期に算出します。 */
+    public Future<Long> async(final Callable<Long> count) {
+        return executor.submit(count);
+    }
+
+    @Value
+    private static class CachedCount {
+        private long total;
+        private long expireMillis;
+    }
+
+}
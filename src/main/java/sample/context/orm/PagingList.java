@@ -2,8 +2,9 @@ package sample.context.orm;
 
 import java.util.List;
 
-import lombok.Value;
+import lombok.*;
 import sample.context.Dto;
+import sample.context.orm.Pagination.CountType;
 
 /**
  * ページング一覧を表現します。
@@ -11,10 +12,19 @@ import sample.context.Dto;
  * @param <T> 結果オブジェクト(一覧の要素)
  */
 @Value
+@AllArgsConstructor
 public class PagingList<T> implements Dto {
     private static final long serialVersionUID = 1L;
 
     private List<T> list;
     private Pagination page;
+    /** トータル件数の算出方式 (件数算出を無視した時はnull) */
+    private CountType countType;
+    /** 次ページが存在するか (判定できない時はnull) */
+    private Boolean hasNext;
+
+    public PagingList(List<T> list, Pagination page) {
+        this(list, page, null, null);
+    }
 
 }
@@ -7,6 +7,7 @@ import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
+import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,8 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import lombok.*;
 import sample.ActionStatusType;
 import sample.context.Dto;
-import sample.model.asset.CashInOut;
-import sample.model.asset.CashInOut.RegCashOut;
+import sample.model.asset.CashInOut.*;
 import sample.usecase.AssetService;
 
 /**
@@ -32,7 +32,7 @@ public class AssetController extends ControllerSupport {
     /** 未処理の振込依頼情報を検索します。 */
     @GetMapping("/cio/unprocessedOut/")
     public List<CashOutUI> findUnprocessedCashOut() {
-        return service.findUnprocessedCashOut().stream().map((cio) -> CashOutUI.of(cio)).collect(Collectors.toList());
+        return service.findUnprocessedCashOut(CashOutUI.class);
     }
 
     /**
@@ -45,7 +45,43 @@ public class AssetController extends ControllerSupport {
         return result(() -> service.withdraw(p));
     }
 
-    /** 振込出金依頼情報の表示用Dto */
+    /**
+     * 振込出金依頼を一括でします。
+     * <p>依頼一覧は JSON で受け付けます。受付結果は依頼順に返します。
+     */
+    @PostMapping("/cio/withdrawAll")
+    public List<CashOutResultUI> withdrawAll(@RequestBody @Valid RegCashOutAll p) {
+        return service.withdrawAll(p.getList()).stream()
+                .map((result) -> CashOutResultUI.of(result, Optional.ofNullable(result.getMessage()).map(this::msg).orElse(null)))
+                .collect(Collectors.toList());
+    }
+
+    /** 振込出金依頼の一括依頼パラメタ */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RegCashOutAll implements Dto {
+        private static final long serialVersionUID = 1L;
+        @NotEmpty
+        @Valid
+        private List<RegCashOut> list = new ArrayList<>();
+    }
+
+    /** 振込出金依頼の受付結果の表示用Dto */
+    @Value
+    public static class CashOutResultUI implements Dto {
+        private static final long serialVersionUID = 1L;
+        /** 振込出金依頼ID (受付できなかった時はnull) */
+        private Long id;
+        /** 受付できなかった事由 */
+        private String message;
+
+        public static CashOutResultUI of(final CashOutResult result, String message) {
+            return new CashOutResultUI(result.isAccepted() ? result.getCio().getId() : null, message);
+        }
+    }
+
+    /** 振込出金依頼情報の表示用Dto ( 検索結果の行から直接生成されます ) */
     @Value
     public static class CashOutUI implements Dto {
         private static final long serialVersionUID = 1L;
@@ -59,12 +95,6 @@ public class AssetController extends ControllerSupport {
         private ActionStatusType statusType;
         private LocalDateTime updateDate;
         private Long cashflowId;
-
-        public static CashOutUI of(final CashInOut cio) {
-            return new CashOutUI(cio.getId(), cio.getCurrency(), cio.getAbsAmount(), cio.getRequestDay(),
-                    cio.getRequestDate(), cio.getEventDay(), cio.getValueDay(), cio.getStatusType(),
-                    cio.getUpdateDate(), cio.getCashflowId());
-        }
     }
 
 }
@@ -25,6 +25,7 @@ import org.springframework.web.client.HttpClientErrorException;
 import sample.ValidationException;
 import sample.ValidationException.*;
 import sample.context.actor.ActorSession;
+import sample.context.lock.IdLockBusyException;
 
 /**
  * REST用の例外Map変換サポート。
@@ -74,6 +75,13 @@ public class RestErrorAdvice {
         return new ErrorHolder(msg, locale(), "error.OptimisticLockingFailure").result(HttpStatus.BAD_REQUEST);
     }
 
+    /** IDロックの取得待ちタイムアウト例外 */
+    @ExceptionHandler(IdLockBusyException.class)
+    public ResponseEntity<Map<String, String[]>> handleIdLockBusyException(IdLockBusyException e) {
+        log.warn(e.getMessage() + " [" + e.getLockType() + ": " + e.getId() + "]");
+        return new ErrorHolder(msg, locale(), ErrorKeys.IdLockBusy).result(HttpStatus.CONFLICT);
+    }
+
     /** 権限例外 */
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<Map<String, String[]>> handleAccessDeniedException(AccessDeniedException e) {
@@ -1,5 +1,7 @@
 package sample.controller.admin;
 
+import java.math.BigDecimal;
+import java.time.*;
 import java.util.List;
 
 import javax.validation.Valid;
@@ -7,9 +9,10 @@ import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import lombok.Setter;
+import lombok.*;
+import sample.ActionStatusType;
+import sample.context.Dto;
 import sample.controller.ControllerSupport;
-import sample.model.asset.CashInOut;
 import sample.model.asset.CashInOut.FindCashInOut;
 import sample.usecase.AssetAdminService;
 
@@ -26,8 +29,33 @@ public class AssetAdminController extends ControllerSupport {
 
     /** 未処理の振込依頼情報を検索します。 */
     @GetMapping("/cio/")
-    public List<CashInOut> findCashInOut(@Valid FindCashInOut p) {
-        return service.findCashInOut(p);
+    public List<CashInOutUI> findCashInOut(@Valid FindCashInOut p) {
+        return service.findCashInOut(p, CashInOutUI.class);
+    }
+
+    /** 振込入出金依頼情報の表示用Dto ( 検索結果の行から直接生成されます ) */
+    @Value
+    public static class CashInOutUI implements Dto {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String accountId;
+        private String currency;
+        private BigDecimal absAmount;
+        private boolean withdrawal;
+        private LocalDate requestDay;
+        private LocalDateTime requestDate;
+        private LocalDate eventDay;
+        private LocalDate valueDay;
+        private String targetFiCode;
+        private String targetFiAccountId;
+        private String selfFiCode;
+        private String selfFiAccountId;
+        private ActionStatusType statusType;
+        private Long cashflowId;
+        private LocalDateTime createDate;
+        private String createId;
+        private LocalDateTime updateDate;
+        private String updateId;
     }
 
 }
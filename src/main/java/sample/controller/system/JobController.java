@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import sample.context.job.JobHandler.JobStatus;
+import sample.context.job.JobInstance;
 import sample.controller.ControllerSupport;
 import sample.usecase.*;
+import sample.usecase.job.ServiceJobExecutor;
 
 /**
  * システムジョブのUI要求を処理します。
@@ -26,6 +29,8 @@ public class JobController extends ControllerSupport {
     private AssetAdminService asset;
     @Autowired
     private SystemAdminService system;
+    @Autowired
+    private ServiceJobExecutor job;
 
     /** 営業日を進めます。 */
     @PostMapping("/daily/processDay")
@@ -45,4 +50,22 @@ public class JobController extends ControllerSupport {
         return resultEmpty(() -> asset.realizeCashflow());
     }
 
+    /** 振込出金依頼の締めをジョブとして受け付けます。(実行状況は/status/{id}で確認してください) */
+    @PostMapping("/daily/closingCashOut/submit")
+    public JobInstance submitClosingCashOut() {
+        return job.submitClosingCashOut();
+    }
+
+    /** キャッシュフローの実現をジョブとして受け付けます。(実行状況は/status/{id}で確認してください) */
+    @PostMapping("/daily/realizeCashflow/submit")
+    public JobInstance submitRealizeCashflow() {
+        return job.submitRealizeCashflow();
+    }
+
+    /** ジョブの実行状況を返します。 */
+    @GetMapping("/status/{id}")
+    public JobStatus status(@PathVariable Long id) {
+        return job.status(id);
+    }
+
 }
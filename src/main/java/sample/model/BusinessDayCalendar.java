@@ -0,0 +1,170 @@
+package sample.model;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import lombok.Getter;
+import sample.util.DateUtils;
+
+/**
+ * 年単位で事前計算された不変の営業日カレンダーを表現します。
+ * <p>対象期間の営業日をビットセットで保持し、あわせて累積営業日数と営業日の索引を
+ * 保持する事で、営業日判定や T+N の営業日算出を走査無しで行います。
+ * <p>カレンダーは生成後に変更されないため、複数スレッドから同期無しで参照できます。
+ * 祝日マスタの更新時は再生成したインスタンスへ差し替えてください。
+ */
+public class BusinessDayCalendar {
+
+    /** 対象開始年 */
+    @Getter
+    private final int fromYear;
+    /** 対象終了年 (含む) */
+    @Getter
+    private final int toYear;
+    /** 対象開始日のエポック日 */
+    private final long firstEpochDay;
+    /** 対象日数 */
+    private final int length;
+    /** 営業日のビットセット (対象開始日からのオフセット) */
+    private final long[] businessBits;
+    /** 対象開始日から各日(含む)までの累積営業日数 */
+    private final int[] counts;
+    /** 営業日の索引 (n番目の営業日のオフセット) */
+    private final int[] businessDays;
+
+    private BusinessDayCalendar(int fromYear, int toYear, final long[] businessBits) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.firstEpochDay = LocalDate.ofYearDay(fromYear, 1).toEpochDay();
+        this.length = (int) (DateUtils.dayTo(toYear).toEpochDay() - firstEpochDay + 1);
+        this.businessBits = businessBits;
+        this.counts = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (isBusinessDayAt(i)) {
+                count++;
+            }
+            counts[i] = count;
+        }
+        this.businessDays = new int[count];
+        for (int i = 0, n = 0; i < length; i++) {
+            if (isBusinessDayAt(i)) {
+                businessDays[n++] = i;
+            }
+        }
+    }
+
+    /** 対象期間に指定日が含まれる時はtrue。 */
+    public boolean covers(LocalDate day) {
+        long offset = day.toEpochDay() - firstEpochDay;
+        return 0 <= offset && offset < length;
+    }
+
+    /** 営業日の時はtrue。(対象期間外の日は指定できません) */
+    public boolean isBusinessDay(LocalDate day) {
+        return isBusinessDayAt(offset(day));
+    }
+
+    private boolean isBusinessDayAt(int offset) {
+        return (businessBits[offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    /**
+     * 基準日から指定営業日数を加算した営業日を返します。
+     * <p>加算日数が0の時は基準日をそのまま返します。(基準日が休日でも補正しません)
+     * @return 算出結果が対象期間外となる時はnull
+     */
+    public LocalDate day(LocalDate baseDay, int daysToAdd) {
+        if (daysToAdd == 0) {
+            return baseDay;
+        }
+        int offset = offset(baseDay);
+        int index = 0 < daysToAdd
+                ? counts[offset] + daysToAdd - 1
+                : counts[offset] - (isBusinessDayAt(offset) ? 1 : 0) + daysToAdd;
+        if (index < 0 || businessDays.length <= index) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(firstEpochDay + businessDays[index]);
+    }
+
+    /**
+     * 期間内の営業日数を返します。
+     * <p>開始日を含まず終了日を含む営業日数 (開始日から終了日までの営業日での受渡日数) を返します。
+     * 終了日が開始日より前の時は負数を返します。(対象期間外の日は指定できません)
+     */
+    public int businessDaysBetween(LocalDate fromDay, LocalDate toDay) {
+        return counts[offset(toDay)] - counts[offset(fromDay)];
+    }
+
+    /**
+     * 双方で営業日となる日のみを営業日とした複合カレンダーを返します。(例: JPY ∩ USD)
+     * <p>対象期間が同じカレンダー同士のみ交差できます。
+     */
+    public BusinessDayCalendar intersect(final BusinessDayCalendar other) {
+        if (fromYear != other.fromYear || toYear != other.toYear) {
+            throw new IllegalArgumentException("Calendar range mismatch [" + fromYear + "-" + toYear + "] ["
+                    + other.fromYear + "-" + other.toYear + "]");
+        }
+        long[] bits = new long[businessBits.length];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = businessBits[i] & other.businessBits[i];
+        }
+        return new BusinessDayCalendar(fromYear, toYear, bits);
+    }
+
+    /**
+     * 休日の追加/削除を反映したカレンダーを返します。(週末および対象期間外の日は無視されます)
+     * @param added 追加された休日
+     * @param removed 削除された休日
+     */
+    public BusinessDayCalendar withHolidays(final Collection<LocalDate> added, final Collection<LocalDate> removed) {
+        long[] bits = businessBits.clone();
+        for (LocalDate day : removed) {
+            if (covers(day) && !DateUtils.isWeekend(day)) {
+                int offset = offset(day);
+                bits[offset >>> 6] |= 1L << offset;
+            }
+        }
+        for (LocalDate day : added) {
+            if (covers(day)) {
+                int offset = offset(day);
+                bits[offset >>> 6] &= ~(1L << offset);
+            }
+        }
+        return new BusinessDayCalendar(fromYear, toYear, bits);
+    }
+
+    private int offset(LocalDate day) {
+        long offset = day.toEpochDay() - firstEpochDay;
+        if (offset < 0 || length <= offset) {
+            throw new IllegalArgumentException("Out of calendar range [" + fromYear + "-" + toYear + "]: " + day);
+        }
+        return (int) offset;
+    }
+
+    /**
+     * 営業日カレンダーを生成します。
+     * @param fromYear 対象開始年
+     * @param toYear 対象終了年 (含む)
+     * @param holidays 週末以外の休日一覧 (対象期間外の日は無視されます)
+     */
+    public static BusinessDayCalendar of(int fromYear, int toYear, final Collection<LocalDate> holidays) {
+        long firstEpochDay = LocalDate.ofYearDay(fromYear, 1).toEpochDay();
+        int length = (int) (DateUtils.dayTo(toYear).toEpochDay() - firstEpochDay + 1);
+        long[] bits = new long[(length + 63) >>> 6];
+        for (int i = 0; i < length; i++) {
+            if (!DateUtils.isWeekend(LocalDate.ofEpochDay(firstEpochDay + i))) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        for (LocalDate holiday : holidays) {
+            long offset = holiday.toEpochDay() - firstEpochDay;
+            if (0 <= offset && offset < length) {
+                bits[(int) offset >>> 6] &= ~(1L << offset);
+            }
+        }
+        return new BusinessDayCalendar(fromYear, toYear, bits);
+    }
+
+}
@@ -1,19 +1,23 @@
 package sample.model;
 
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.*;
 
 import lombok.Setter;
 import sample.context.Timestamper;
 import sample.context.orm.DefaultRepository;
 import sample.model.master.Holiday;
-import sample.model.master.Holiday.RegHoliday;
+import sample.model.master.Holiday.*;
 import sample.util.DateUtils;
 
 /**
@@ -34,59 +38,308 @@ public class BusinessDayHandler {
         return time.day();
     }
 
-    /** 営業日を返します。 */
+    /**
+     * 営業日を返します。
+     * <p>事前計算された営業日カレンダーの対象期間内であれば走査無しで算出します。
+     */
     public LocalDate day(int daysToAdd) {
+        return day(daysToAdd, Holiday.CategoryDefault);
+    }
+
+    /**
+     * 休日区分を指定して営業日を返します。
+     * <p>複数の休日区分を指定した時は、いずれの区分でも営業日となる日 (例: JPY ∩ USD) を営業日とします。
+     * @param categories 休日区分 (通貨や金融機関コード等)
+     */
+    public LocalDate day(int daysToAdd, String... categories) {
         LocalDate day = day();
+        if (daysToAdd == 0) {
+            return day;
+        }
+        BusinessDayCalendar calendar = calendar(day, categories);
+        LocalDate result = calendar != null ? calendar.day(day, daysToAdd) : null;
+        return result != null ? result : dayWalk(day, daysToAdd, categories);
+    }
+
+    /** 営業日の時はtrue。 */
+    public boolean isBusinessDay(LocalDate day) {
+        return isBusinessDay(day, Holiday.CategoryDefault);
+    }
+
+    /** 休日区分を指定して、営業日の時はtrue。 */
+    public boolean isBusinessDay(LocalDate day, String... categories) {
+        BusinessDayCalendar calendar = calendar(day, categories);
+        return calendar != null ? calendar.isBusinessDay(day) : !isHolidayOrWeeekDay(day, categories);
+    }
+
+    /**
+     * 期間内の営業日数を返します。
+     * <p>開始日を含まず終了日を含む営業日数を返します。終了日が開始日より前の時は負数を返します。
+     */
+    public int businessDaysBetween(LocalDate fromDay, LocalDate toDay) {
+        return businessDaysBetween(fromDay, toDay, Holiday.CategoryDefault);
+    }
+
+    /** 休日区分を指定して、期間内の営業日数を返します。 */
+    public int businessDaysBetween(LocalDate fromDay, LocalDate toDay, String... categories) {
+        BusinessDayCalendar calendar = calendar(fromDay, toDay, categories);
+        if (calendar != null) {
+            return calendar.businessDaysBetween(fromDay, toDay);
+        }
+        boolean reverse = toDay.isBefore(fromDay);
+        LocalDate day = reverse ? toDay : fromDay;
+        LocalDate end = reverse ? fromDay : toDay;
+        int count = 0;
+        while (day.isBefore(end)) {
+            day = day.plusDays(1);
+            if (!isHolidayOrWeeekDay(day, categories)) {
+                count++;
+            }
+        }
+        return reverse ? -count : count;
+    }
+
+    /** 指定日を含む営業日カレンダーを返します。(祝日マスタを利用できない時や対象期間を広げられない時はnull) */
+    private BusinessDayCalendar calendar(LocalDate day, String[] categories) {
+        return calendar(day, day, categories);
+    }
+
+    /**
+     * 指定期間を含む営業日カレンダーを返します。(祝日マスタを利用できない時や対象期間を広げられない時はnull)
+     * <p>対象期間外の日を指定した時は、生成済の期間を含むように広げたカレンダーを生成します。
+     */
+    private BusinessDayCalendar calendar(LocalDate fromDay, LocalDate toDay, String[] categories) {
+        if (holidayAccessor == null) {
+            return null;
+        }
+        BusinessDayCalendar calendar = holidayAccessor.calendar(categories);
+        if (calendar == null || !calendar.covers(fromDay) || !calendar.covers(toDay)) {
+            int fromYear = Math.min(fromDay.getYear(), toDay.getYear());
+            int toYear = Math.max(fromDay.getYear(), toDay.getYear());
+            calendar = holidayAccessor.loadCalendar(fromYear - 1, toYear + 1, categories);
+        }
+        return calendar;
+    }
+
+    /** 休日を1日ずつ判定しながら営業日を算出します。(カレンダーの対象期間外で利用) */
+    private LocalDate dayWalk(LocalDate baseDay, int daysToAdd, String[] categories) {
+        LocalDate day = baseDay;
         if (0 < daysToAdd) {
             for (int i = 0; i < daysToAdd; i++)
-                day = dayNext(day);
+                day = dayNext(day, categories);
         } else if (daysToAdd < 0) {
             for (int i = 0; i < (-daysToAdd); i++)
-                day = dayPrevious(day);
+                day = dayPrevious(day, categories);
         }
         return day;
     }
 
-    private LocalDate dayNext(LocalDate baseDay) {
+    private LocalDate dayNext(LocalDate baseDay, String[] categories) {
         LocalDate day = baseDay.plusDays(1);
-        while (isHolidayOrWeeekDay(day))
+        while (isHolidayOrWeeekDay(day, categories))
             day = day.plusDays(1);
         return day;
     }
 
-    private LocalDate dayPrevious(LocalDate baseDay) {
+    private LocalDate dayPrevious(LocalDate baseDay, String[] categories) {
         LocalDate day = baseDay.minusDays(1);
-        while (isHolidayOrWeeekDay(day))
+        while (isHolidayOrWeeekDay(day, categories))
             day = day.minusDays(1);
         return day;
     }
 
     /** 祝日もしくは週末時はtrue。 */
-    private boolean isHolidayOrWeeekDay(LocalDate day) {
-        return (DateUtils.isWeekend(day) || isHoliday(day));
+    private boolean isHolidayOrWeeekDay(LocalDate day, String[] categories) {
+        return (DateUtils.isWeekend(day) || isHoliday(day, categories));
     }
 
-    private boolean isHoliday(LocalDate day) {
-        return holidayAccessor == null ? false : holidayAccessor.getHoliday(day).isPresent();
+    private boolean isHoliday(LocalDate day, String[] categories) {
+        if (holidayAccessor == null) {
+            return false;
+        }
+        for (String category : categories) {
+            if (holidayAccessor.getHoliday(day, category).isPresent()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /** 祝日マスタを検索/登録するアクセサ。 */
     @Component
     @Setter
     public static class HolidayAccessor {
+        /** 複合カレンダーのキーで休日区分を連結する区切り文字 */
+        public static final String JointSeparator = "&";
+        public static final String CacheHoliday = "HolidayAccessor.getHoliday";
+        /** 営業日カレンダーの最大対象年数 (超える期間は祝日を1日ずつ判定します) */
+        public static final int CalendarMaxYears = 20;
+
         @Autowired
         private DefaultRepository rep;
+        @Autowired(required = false)
+        private CacheManager cacheManager;
+        /**
+         * 事前計算済の営業日カレンダー (キーは休日区分。再生成時はインスタンスごと差し替え)
+         * <p>差し替えは{@link #loadCalendar}と{@link #refresh}のみが自身を同期して行います。
+         */
+        private final Map<String, BusinessDayCalendar> calendars = new ConcurrentHashMap<>();
+        /** 休日区分一覧 ( 指定順 ) 毎の複合カレンダーのキー ( カレンダーの生成時に登録します ) */
+        private final Map<List<String>, String> jointKeys = new ConcurrentHashMap<>();
 
         @Transactional(DefaultRepository.BeanNameTx)
-        @Cacheable(cacheNames = "HolidayAccessor.getHoliday")
+        @Cacheable(cacheNames = CacheHoliday)
         public Optional<Holiday> getHoliday(LocalDate day) {
             return Holiday.get(rep, day);
         }
 
         @Transactional(DefaultRepository.BeanNameTx)
-        @CacheEvict(cacheNames = "HolidayAccessor.getHoliday", allEntries = true)
-        public void register(final DefaultRepository rep, final RegHoliday p) {
-            Holiday.register(rep, p);
+        @Cacheable(cacheNames = CacheHoliday)
+        public Optional<Holiday> getHoliday(LocalDate day, String category) {
+            return Holiday.get(rep, day, category);
+        }
+
+        /**
+         * 休日マスタを登録します。
+         * <p>登録済の休日との差分のみを反映し、コミット後に変更のあった休日のキャッシュのみを破棄します。
+         * 営業日カレンダーは DB を再検索せずに差分を適用したものへ差し替え、
+         * その区分を含む複合カレンダーも再計算されます。
+         */
+        @Transactional(DefaultRepository.BeanNameTx)
+        public HolidayChanges register(final DefaultRepository rep, final RegHoliday p) {
+            HolidayChanges changes = Holiday.register(rep, p);
+            if (changes.isEmpty()) {
+                return changes;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        refresh(changes);
+                    }
+                });
+            } else {
+                refresh(changes);
+            }
+            return changes;
+        }
+
+        private synchronized void refresh(final HolidayChanges changes) {
+            String category = changes.getCategory();
+            Optional.ofNullable(cacheManager).map((manager) -> manager.getCache(CacheHoliday)).ifPresent((cache) -> {
+                changes.days().forEach((day) -> {
+                    if (Holiday.CategoryDefault.equals(category)) {
+                        cache.evict(day);
+                    }
+                    cache.evict(new SimpleKey(day, category));
+                });
+            });
+            BusinessDayCalendar current = calendars.get(category);
+            if (current != null) {
+                calendars.put(category, current.withHolidays(changes.getAdded(), changes.getRemoved()));
+            }
+            for (String key : new ArrayList<>(calendars.keySet())) {
+                List<String> components = Arrays.asList(key.split(JointSeparator));
+                if (components.size() < 2 || !components.contains(category)) {
+                    continue;
+                }
+                BusinessDayCalendar joint = null;
+                for (String component : components) {
+                    BusinessDayCalendar calendar = calendars.get(component);
+                    if (calendar == null || (joint != null && (joint.getFromYear() != calendar.getFromYear()
+                            || joint.getToYear() != calendar.getToYear()))) {
+                        joint = null;
+                        break;
+                    }
+                    joint = joint == null ? calendar : joint.intersect(calendar);
+                }
+                if (joint != null) {
+                    calendars.put(key, joint);
+                } else {
+                    calendars.remove(key);
+                }
+            }
+        }
+
+        /** 事前計算済の標準の営業日カレンダーを返します。(未生成の時はnull) */
+        public BusinessDayCalendar calendar() {
+            return calendars.get(Holiday.CategoryDefault);
+        }
+
+        /**
+         * 事前計算済の営業日カレンダーを返します。(未生成の時はnull)
+         * <p>複数の休日区分を指定した時は各区分の営業日の積となる複合カレンダーを返します。
+         */
+        public BusinessDayCalendar calendar(String... categories) {
+            if (categories.length == 1) {
+                return calendars.get(categories[0]);
+            }
+            String key = jointKeys.get(Arrays.asList(categories));
+            return key != null ? calendars.get(key) : null;
+        }
+
+        /**
+         * 祝日マスタから営業日カレンダーを生成して差し替えます。
+         * <p>対象期間は生成済のカレンダー(構成する休日区分を含む)の期間を含むように広げられるため、
+         * 異なる年の日付を交互に参照してもカレンダーの再生成は繰り返されません。
+         * 広げた期間が{@link #CalendarMaxYears}を超える時は差し替えずにnullを返します。
+         * <p>複合カレンダーは生成済の休日区分毎のカレンダーを交差させて算出します。
+         * low: 祝日の登録時に行われる差し替え({@link #refresh})と同期するため、登録前の祝日で生成したカレンダーが
+         * 登録の反映を上書きする事はありません。
+         */
+        @Transactional(DefaultRepository.BeanNameTx)
+        public synchronized BusinessDayCalendar loadCalendar(int fromYear, int toYear, String... categories) {
+            SortedSet<String> categorySet = categorySet(categories);
+            String key = key(categories, categorySet);
+            List<BusinessDayCalendar> loaded = new ArrayList<>();
+            loaded.add(calendars.get(key));
+            categorySet.forEach((category) -> loaded.add(calendars.get(category)));
+            for (BusinessDayCalendar calendar : loaded) {
+                if (calendar != null) {
+                    fromYear = Math.min(fromYear, calendar.getFromYear());
+                    toYear = Math.max(toYear, calendar.getToYear());
+                }
+            }
+            if (CalendarMaxYears < toYear - fromYear + 1) {
+                return null;
+            }
+            BusinessDayCalendar joint = null;
+            for (String category : categorySet) {
+                BusinessDayCalendar calendar = calendars.get(category);
+                if (calendar == null || calendar.getFromYear() != fromYear || calendar.getToYear() != toYear) {
+                    calendar = build(rep, category, fromYear, toYear);
+                    calendars.put(category, calendar);
+                }
+                joint = joint == null ? calendar : joint.intersect(calendar);
+            }
+            calendars.put(key, joint);
+            return joint;
+        }
+
+        private BusinessDayCalendar build(final DefaultRepository rep, String category, int fromYear, int toYear) {
+            List<LocalDate> holidays = new ArrayList<>();
+            for (int year = fromYear; year <= toYear; year++) {
+                Holiday.find(rep, year, category).forEach((holiday) -> holidays.add(holiday.getDay()));
+            }
+            return BusinessDayCalendar.of(fromYear, toYear, holidays);
+        }
+
+        /**
+         * 休日区分一覧からカレンダーのキーを返します。(順序と重複に依存しません)
+         * <p>複数の休日区分の時は正規化したキーを指定順の一覧に紐付けて登録し、以降の参照で再利用します。
+         */
+        private String key(String[] categories, final SortedSet<String> categorySet) {
+            if (categories.length == 1) {
+                return categories[0];
+            }
+            return jointKeys.computeIfAbsent(Arrays.asList(categories.clone()),
+                    (k) -> String.join(JointSeparator, categorySet));
+        }
+
+        private SortedSet<String> categorySet(String[] categories) {
+            return categories.length == 0
+                    ? new TreeSet<>(Collections.singleton(Holiday.CategoryDefault))
+                    : new TreeSet<>(Arrays.asList(categories));
         }
 
     }
@@ -19,7 +19,8 @@ public class FiAccount extends OrmActiveRecord<FiAccount> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "fi_account_seq", sequenceName = "fi_account_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fi_account_seq")
     private Long id;
     /** 口座ID */
     @IdStr
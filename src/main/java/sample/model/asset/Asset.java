@@ -1,11 +1,11 @@
 package sample.model.asset;
 
-import java.math.BigDecimal;
+import java.math.*;
 import java.time.LocalDate;
 
 import lombok.Getter;
 import sample.context.orm.OrmRepository;
-import sample.util.Calculator;
+import sample.util.Money;
 
 /**
  * 口座の資産概念を表現します。
@@ -29,14 +29,27 @@ public class Asset {
     /**
      * 振込出金可能か判定します。
      * <p>0 &lt;= 口座残高 + 未実現キャッシュフロー - (出金依頼拘束額 + 出金依頼額) 
-     * low: 判定のみなのでscale指定は省略。余力金額を返す時はきちんと指定する
      */
     public boolean canWithdraw(final OrmRepository rep, String currency, BigDecimal absAmount, LocalDate valueDay) {
-        Calculator calc = Calculator.of(CashBalance.getOrNew(rep, id, currency).getAmount());
-        Cashflow.findUnrealize(rep, id, currency, valueDay).stream().forEach((cf) -> calc.add(cf.getAmount()));
-        CashInOut.findUnprocessed(rep, id, currency, true).stream()
-                .forEach((withdrawal) -> calc.add(withdrawal.getAbsAmount().negate()));
-        calc.add(absAmount.negate());
-        return 0 <= calc.decimal().signum();
+        return 0 <= withdrawable(rep, currency, valueDay).compareTo(absAmount);
+    }
+
+    /**
+     * 指定受渡日時点の振込出金可能額を返します。
+     * <p>口座残高 + 未実現キャッシュフロー - 出金依頼拘束額
+     * <p>未実現キャッシュフローと出金依頼拘束額は合計値のみを集計して取得するため、未処理件数に依らず一定の検索で算出されます。
+     * 見込残高台帳を利用する時は台帳の値を返します。
+     */
+    public BigDecimal withdrawable(final OrmRepository rep, String currency, LocalDate valueDay) {
+        return rep.dh().ledger()
+                .map((ledger) -> ledger.balance(id, currency, valueDay, () -> withdrawableInDb(rep, currency, valueDay)))
+                .orElseGet(() -> withdrawableInDb(rep, currency, valueDay));
+    }
+
+    private BigDecimal withdrawableInDb(final OrmRepository rep, String currency, LocalDate valueDay) {
+        return Money.of(CashBalance.getOrNew(rep, id, currency).getAmount(), currency)
+                .add(Cashflow.sumUnrealize(rep, id, currency, valueDay))
+                .subtract(CashInOut.sumUnprocessed(rep, id, currency, true))
+                .decimal();
     }
 }
@@ -2,11 +2,14 @@ package sample.model.asset;
 
 import java.math.*;
 import java.time.*;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import javax.persistence.*;
 
 import lombok.*;
+import sample.context.job.JobStep.JobChunk;
 import sample.context.orm.*;
 import sample.model.constraints.*;
 import sample.util.*;
@@ -15,6 +18,7 @@ import sample.util.*;
  * 口座残高を表現します。
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "accountId", "currency", "baseDay" }))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +28,8 @@ public class CashBalance extends OrmActiveRecord<CashBalance> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "cash_balance_seq", sequenceName = "cash_balance_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cash_balance_seq")
     private Long id;
     /** 口座ID */
     @IdStr
@@ -47,24 +52,56 @@ public class CashBalance extends OrmActiveRecord<CashBalance> {
      * low ここではCurrencyを使っていますが、実際の通貨桁数や端数処理定義はDBや設定ファイル等で管理されます。
      */
     public CashBalance add(final OrmRepository rep, BigDecimal addAmount) {
-        int scale = java.util.Currency.getInstance(currency).getDefaultFractionDigits();
-        RoundingMode mode = RoundingMode.DOWN;
-        setAmount(Calculator.of(amount).scale(scale, mode).add(addAmount).decimal());
+        BigDecimal before = amount;
+        setAmount(Money.of(amount, currency).add(addAmount).decimal());
+        rep.dh().ledger().ifPresent((ledger) -> ledger.apply(accountId, currency, amount.subtract(before), null));
         return update(rep);
     }
 
     /**
      * 指定口座の残高を取得します。(存在しない時は繰越保存後に取得します)
+     * <p>営業日の残高は日次の繰越({@link #rollover})で事前に作成されるため、通常は一意キーによる検索のみとなります。
+     * 繰越後に開設された口座や繰越前に参照された時は、その場で繰越して作成します。
      * low: 複数通貨の適切な考慮や細かい審査は本筋でないので割愛。
      */
     public static CashBalance getOrNew(final OrmRepository rep, String accountId, String currency) {
         LocalDate baseDay = rep.dh().time().day();
         Optional<CashBalance> m = rep.tmpl().get(
-                "from CashBalance c where c.accountId=?1 and c.currency=?2 and c.baseDay=?3 order by c.baseDay desc",
+                "from CashBalance c where c.accountId=?1 and c.currency=?2 and c.baseDay=?3",
                 accountId, currency, baseDay);
         return m.orElseGet(() -> create(rep, accountId, currency));
     }
 
+    /**
+     * 指定基準日の残高を、基準日より前の最新残高から ID順に chunkSize 件単位で繰越作成します。
+     * <p>既に基準日の残高を保有する口座通貨は対象外です。呼出元はチャンク毎にコミットしてください。
+     * @param checkpoint 前回チャンクで繰越元とした最終ID (初回はnull)
+     * @return チャンクの処理結果 (処理件数は繰越した件数)
+     */
+    public static JobChunk rollover(final OrmRepository rep, LocalDate baseDay, String checkpoint, int chunkSize) {
+        LocalDateTime now = rep.dh().time().date();
+        List<CashBalance> list = findRollover(rep, baseDay, checkpoint, chunkSize);
+        if (list.isEmpty()) {
+            return new JobChunk(0, checkpoint, true);
+        }
+        int count = rep.saveAll(list.stream()
+                .map((prev) -> new CashBalance(null, prev.getAccountId(), baseDay, prev.getCurrency(), prev.getAmount(), now))
+                .collect(Collectors.toList()), chunkSize).size();
+        return new JobChunk(count, String.valueOf(list.get(list.size() - 1).getId()), list.size() < chunkSize);
+    }
+
+    /**
+     * 指定基準日へ繰越する残高(基準日より前の最新残高)を ID順に chunkSize 件取得します。
+     * <p>既に基準日の残高を保有する口座通貨は対象外です。
+     * @param checkpoint 前回チャンクで繰越元とした最終ID (初回はnull)
+     */
+    public static List<CashBalance> findRollover(final OrmRepository rep, LocalDate baseDay, String checkpoint, int chunkSize) {
+        Long lastId = checkpoint != null ? Long.valueOf(checkpoint) : 0L;
+        return rep.tmpl().<CashBalance> find(
+                "from CashBalance c where c.baseDay<?1 and c.id>?2 and c.baseDay=(select max(b.baseDay) from CashBalance b where b.accountId=c.accountId and b.currency=c.currency) order by c.id",
+                new Pagination(1, chunkSize).ignoreTotal(), baseDay, lastId).getList();
+    }
+
     private static CashBalance create(final OrmRepository rep, String accountId, String currency) {
         TimePoint now = rep.dh().time().tp();
         Optional<CashBalance> m = rep.tmpl().get(
@@ -2,14 +2,15 @@ package sample.model.asset;
 
 import java.math.BigDecimal;
 import java.time.*;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 import javax.persistence.*;
 import javax.persistence.Entity;
 import javax.validation.constraints.NotNull;
 
 import lombok.*;
-import sample.ActionStatusType;
+import sample.*;
 import sample.ValidationException.ErrorKeys;
 import sample.context.*;
 import sample.context.orm.*;
@@ -18,7 +19,8 @@ import sample.model.account.FiAccount;
 import sample.model.asset.Cashflow.RegCashflow;
 import sample.model.asset.type.CashflowType;
 import sample.model.constraints.*;
-import sample.model.master.SelfFiAccount;
+import sample.model.constraints.Currency;
+import sample.model.master.*;
 import sample.util.*;
 
 /**
@@ -36,7 +38,8 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
 
     /** ID(振込依頼No) */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "cash_in_out_seq", sequenceName = "cash_in_out_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cash_in_out_seq")
     private Long id;
     /** 口座ID */
     @IdStr
@@ -106,6 +109,7 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
         // 処理済状態を反映
         setStatusType(ActionStatusType.Processed);
         setCashflowId(Cashflow.register(rep, regCf()).getId());
+        applyLedger(rep, absAmount);
         return update(rep);
     }
 
@@ -130,9 +134,17 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
         });
         // 取消状態を反映
         setStatusType(ActionStatusType.Cancelled);
+        applyLedger(rep, absAmount);
         return update(rep);
     }
 
+    /** 出金依頼の拘束額の増減を見込残高台帳へ通知します。 */
+    private void applyLedger(final OrmRepository rep, BigDecimal amount) {
+        if (withdrawal) {
+            rep.dh().ledger().ifPresent((ledger) -> ledger.apply(accountId, currency, amount, null));
+        }
+    }
+
     /**
      * 依頼をエラー状態にします。
      * <p>処理中に失敗した際に呼び出してください。
@@ -152,13 +164,24 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
 
     /** 未処理の振込入出金依頼一覧を検索します。  low: criteriaベース実装例 */
     public static List<CashInOut> find(final OrmRepository rep, final FindCashInOut p) {
+        return rep.tmpl().find(CashInOut.class, (criteria) -> findCriteria(criteria, p).result());
+    }
+
+    /**
+     * 未処理の振込入出金一覧を DTO で検索します。
+     * <p>resultClass には CashInOut と同名のフィールドを持つ DTO を指定してください。 ( エンティティは取得しません )
+     */
+    public static <R> List<R> find(final OrmRepository rep, final FindCashInOut p, Class<R> resultClass) {
+        return rep.tmpl().findInto(CashInOut.class, resultClass, (criteria) -> findCriteria(criteria, p));
+    }
+
+    private static OrmCriteria<CashInOut> findCriteria(final OrmCriteria<CashInOut> criteria, final FindCashInOut p) {
         // low: 通常であれば事前にfrom/toの期間チェックを入れる
-        return rep.tmpl().find(CashInOut.class, (criteria) -> criteria
+        return criteria
                 .equal("currency", p.getCurrency())
                 .in("statusType", p.getStatusTypes())
                 .between("updateDate", p.getUpdFromDay().atStartOfDay(), DateUtils.dateTo(p.getUpdToDay()))
-                .sortDesc("updateDate")
-                .result());
+                .sortDesc("updateDate");
     }
 
     /** 当日発生で未処理の振込入出金一覧を検索します。 */
@@ -167,6 +190,34 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
                 rep.dh().time().day(), ActionStatusType.unprocessedTypes);
     }
 
+    /** 当日発生で未処理の振込入出金を持つ口座ID一覧を検索します。 */
+    public static List<String> findUnprocessedAccounts(final OrmRepository rep) {
+        return rep.tmpl().find(
+                "select distinct c.accountId from CashInOut c where c.eventDay=?1 and c.statusType in ?2 order by c.accountId",
+                rep.dh().time().day(), ActionStatusType.unprocessedTypes);
+    }
+
+    /**
+     * 当日発生で未処理の振込入出金を持つ口座ID一覧を、指定口座IDより後から口座ID順に指定件数分検索します。
+     * @param lastAccountId 検索開始口座ID(この口座IDより後が対象。nullの時は先頭から)
+     */
+    public static List<String> findUnprocessedAccounts(final OrmRepository rep, String lastAccountId, int size) {
+        return rep.tmpl().<String> find(
+                "select distinct c.accountId from CashInOut c where c.eventDay=?1 and c.statusType in ?2 and c.accountId>?3 order by c.accountId",
+                new Pagination(1, size).ignoreTotal(), rep.dh().time().day(), ActionStatusType.unprocessedTypes,
+                lastAccountId == null ? "" : lastAccountId).getList();
+    }
+
+    /**
+     * 当日発生で未処理の振込入出金を ID 順に逐次検索します。(口座別)
+     * <p>pageSize 件単位のキーセット検索となるため、大量件数でも一定のメモリで処理できます。
+     */
+    public static Stream<CashInOut> streamUnprocessedInDay(final OrmRepository rep, String accountId, int pageSize) {
+        return rep.tmpl().streamByKey(
+                "from CashInOut c where c.eventDay=?1 and c.accountId=?2 and c.statusType in ?3 and c.id>?4 order by c.id",
+                pageSize, CashInOut::getId, 0L, rep.dh().time().day(), accountId, ActionStatusType.unprocessedTypes);
+    }
+
     /** 未処理の振込入出金一覧を検索します。(口座別) */
     public static List<CashInOut> findUnprocessed(final OrmRepository rep, String accountId, String currency,
             boolean withdrawal) {
@@ -176,6 +227,17 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
                 ActionStatusType.unprocessedTypes);
     }
 
+    /**
+     * 未処理の振込入出金金額の合計を返します。(口座通貨別)
+     * <p>エンティティを取得せずに集計のみを行います。
+     */
+    public static BigDecimal sumUnprocessed(final OrmRepository rep, String accountId, String currency,
+            boolean withdrawal) {
+        return rep.tmpl().load(
+                "select coalesce(sum(c.absAmount), 0) from CashInOut c where c.accountId=?1 and c.currency=?2 and c.withdrawal=?3 and c.statusType in ?4",
+                accountId, currency, withdrawal, ActionStatusType.unprocessedTypes);
+    }
+
     /** 未処理の振込入出金一覧を検索します。(口座別) */
     public static List<CashInOut> findUnprocessed(final OrmRepository rep, String accountId) {
         return rep.tmpl().find(
@@ -183,14 +245,26 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
                 ActionStatusType.unprocessedTypes);
     }
 
+    /**
+     * 未処理の振込入出金一覧を DTO で検索します。(口座別)
+     * <p>resultClass には CashInOut と同名のフィールドを持つ DTO を指定してください。 ( エンティティは取得しません )
+     */
+    public static <R> List<R> findUnprocessed(final OrmRepository rep, String accountId, Class<R> resultClass) {
+        return rep.tmpl().findInto(CashInOut.class, resultClass, (criteria) -> criteria
+                .equal("accountId", accountId)
+                .in("statusType", ActionStatusType.unprocessedTypes.toArray())
+                .sortDesc("updateDate"));
+    }
+
     /** 出金依頼をします。 */
     public static CashInOut withdraw(final OrmRepository rep, final BusinessDayHandler day, final RegCashOut p) {
         DomainHelper dh = rep.dh();
         TimePoint now = dh.time().tp();
+        FiAccount acc = FiAccount.load(rep, p.getAccountId(), Remarks.CashOut, p.getCurrency());
+        SelfFiAccount selfAcc = SelfFiAccount.load(rep, Remarks.CashOut, p.getCurrency());
         // low: 発生日は締め時刻等の兼ね合いで営業日と異なるケースが多いため、別途DB管理される事が多い
         LocalDate eventDay = day.day();
-        // low: 実際は各金融機関/通貨の休日を考慮しての T+N 算出が必要
-        LocalDate valueDay = day.day(3);
+        LocalDate valueDay = valueDay(day, p.getCurrency(), acc);
 
         // 事前審査
         Validator.validate((v) -> {
@@ -201,10 +275,81 @@ public class CashInOut extends OrmActiveMetaRecord<CashInOut> {
         });
 
         // 出金依頼情報を登録
-        FiAccount acc = FiAccount.load(rep, p.getAccountId(), Remarks.CashOut, p.getCurrency());
-        SelfFiAccount selfAcc = SelfFiAccount.load(rep, Remarks.CashOut, p.getCurrency());
         String updateActor = dh.actor().getId();
-        return p.create(now, eventDay, valueDay, acc, selfAcc, updateActor).save(rep);
+        CashInOut cio = p.create(now, eventDay, valueDay, acc, selfAcc, updateActor).save(rep);
+        cio.applyLedger(rep, cio.getAbsAmount().negate());
+        return cio;
+    }
+
+    /**
+     * 出金依頼の受渡日 (T+3) を返します。
+     * <p>標準/通貨/出金先金融機関の休日区分のいずれでも営業日となる日で算出します。
+     */
+    private static LocalDate valueDay(final BusinessDayHandler day, String currency, final FiAccount acc) {
+        return day.day(3, Holiday.CategoryDefault, currency, acc.getFiCode());
+    }
+
+    /**
+     * 振込出金依頼を一括でします。
+     * <p>出金可能額は口座通貨単位に一度だけ算出し、依頼順に依頼額を差し引きながら審査します。
+     * 審査を通過した依頼はまとめて一括登録されます。審査に通らなかった依頼は登録されません。
+     * @return 依頼毎の受付結果 (依頼順)
+     */
+    public static List<CashOutResult> withdrawAll(final OrmRepository rep, final BusinessDayHandler day,
+            final List<RegCashOut> list) {
+        DomainHelper dh = rep.dh();
+        TimePoint now = dh.time().tp();
+        LocalDate eventDay = day.day();
+        String updateActor = dh.actor().getId();
+
+        Map<String, BigDecimal> remains = new HashMap<>();
+        Map<String, FiAccount> accs = new HashMap<>();
+        Map<String, LocalDate> valueDays = new HashMap<>();
+        Map<String, SelfFiAccount> selfAccs = new HashMap<>();
+        List<CashOutResult> results = new ArrayList<>(list.size());
+        List<CashInOut> accepted = new ArrayList<>();
+        for (RegCashOut p : list) {
+            String key = p.getAccountId() + "/" + p.getCurrency();
+            try {
+                FiAccount acc = accs.computeIfAbsent(key,
+                        (k) -> FiAccount.load(rep, p.getAccountId(), Remarks.CashOut, p.getCurrency()));
+                SelfFiAccount selfAcc = selfAccs.computeIfAbsent(p.getCurrency(),
+                        (k) -> SelfFiAccount.load(rep, Remarks.CashOut, p.getCurrency()));
+                LocalDate valueDay = valueDays.computeIfAbsent(key, (k) -> valueDay(day, p.getCurrency(), acc));
+                Validator.validate((v) -> {
+                    v.verifyField(0 < p.getAbsAmount().signum(), "absAmount", DomainErrorKeys.AbsAmountZero);
+                    BigDecimal remain = remains.computeIfAbsent(key,
+                            (k) -> Asset.by(p.getAccountId()).withdrawable(rep, p.getCurrency(), valueDay));
+                    v.verifyField(0 <= remain.compareTo(p.getAbsAmount()), "absAmount",
+                            AssetErrorKeys.CashInOutWithdrawAmount);
+                });
+                remains.compute(key, (k, remain) -> remain.subtract(p.getAbsAmount()));
+                CashInOut cio = p.create(now, eventDay, valueDay, acc, selfAcc, updateActor);
+                accepted.add(cio);
+                results.add(new CashOutResult(cio, null));
+            } catch (ValidationException e) {
+                results.add(new CashOutResult(null, e.getMessage()));
+            }
+        }
+
+        // 出金依頼情報を一括登録
+        rep.saveAll(accepted);
+        accepted.forEach((cio) -> cio.applyLedger(rep, cio.getAbsAmount().negate()));
+        return results;
+    }
+
+    /** 振込出金依頼の受付結果。 */
+    @Value
+    public static class CashOutResult implements Dto {
+        private static final long serialVersionUID = 1L;
+        /** 受付した振込出金依頼 (受付できなかった時はnull) */
+        private CashInOut cio;
+        /** 受付できなかった事由 (メッセージキー) */
+        private String message;
+
+        public boolean isAccepted() {
+            return cio != null;
+        }
     }
 
     /** 振込入出金依頼の検索パラメタ。 low: 通常は顧客視点/社内視点で利用条件が異なる */
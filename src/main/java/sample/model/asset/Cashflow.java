@@ -3,6 +3,7 @@ package sample.model.asset;
 import java.math.BigDecimal;
 import java.time.*;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -30,7 +31,8 @@ public class Cashflow extends OrmActiveMetaRecord<Cashflow> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "cashflow_seq", sequenceName = "cashflow_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cashflow_seq")
     private Long id;
     /** 口座ID */
     @IdStr
@@ -75,15 +77,24 @@ public class Cashflow extends OrmActiveMetaRecord<Cashflow> {
 
     /** キャッシュフローを処理済みにして残高へ反映します。 */
     public Cashflow realize(final OrmRepository rep) {
+        process(rep);
+        CashBalance.getOrNew(rep, accountId, currency).add(rep, amount);
+        return this;
+    }
+
+    /**
+     * キャッシュフローを処理済みにします。
+     * <p>残高への反映は行われないため、呼び出し元で口座通貨単位に集計して反映してください。
+     */
+    public Cashflow process(final OrmRepository rep) {
         validate((v) -> {
             v.verify(canRealize(rep), AssetErrorKeys.CashflowRealizeDay);
             v.verify(statusType.isUnprocessing(), ErrorKeys.ActionUnprocessing); // 「既に処理中/処理済です」
         });
 
         setStatusType(ActionStatusType.Processed);
-        update(rep);
-        CashBalance.getOrNew(rep, accountId, currency).add(rep, amount);
-        return this;
+        rep.dh().ledger().ifPresent((ledger) -> ledger.apply(accountId, currency, amount.negate(), valueDay));
+        return update(rep);
     }
 
     /**
@@ -118,6 +129,17 @@ public class Cashflow extends OrmActiveMetaRecord<Cashflow> {
                 accountId, currency, valueDay, ActionStatusType.unprocessingTypes);
     }
 
+    /**
+     * 指定受渡日時点で未実現のキャッシュフロー金額の合計を返します。(口座通貨別)
+     * <p>エンティティを取得せずに集計のみを行います。
+     */
+    public static BigDecimal sumUnrealize(final OrmRepository rep, String accountId, String currency,
+            LocalDate valueDay) {
+        return rep.tmpl().load(
+                "select coalesce(sum(c.amount), 0) from Cashflow c where c.accountId=?1 and c.currency=?2 and c.valueDay<=?3 and c.statusType in ?4",
+                accountId, currency, valueDay, ActionStatusType.unprocessingTypes);
+    }
+
     /**
      * 指定受渡日で実現対象となるキャッシュフロー一覧を検索します。
      */
@@ -126,6 +148,46 @@ public class Cashflow extends OrmActiveMetaRecord<Cashflow> {
                 ActionStatusType.unprocessedTypes);
     }
 
+    /** 指定受渡日で実現対象となるキャッシュフローを持つ口座ID一覧を検索します。 */
+    public static List<String> findDoRealizeAccounts(final OrmRepository rep, LocalDate valueDay) {
+        return rep.tmpl().find(
+                "select distinct c.accountId from Cashflow c where c.valueDay=?1 and c.statusType in ?2 order by c.accountId",
+                valueDay, ActionStatusType.unprocessedTypes);
+    }
+
+    /**
+     * 指定受渡日で実現対象となるキャッシュフローを持つ口座ID一覧を、指定口座IDより後から口座ID順に指定件数分検索します。
+     * @param lastAccountId 検索開始口座ID(この口座IDより後が対象。nullの時は先頭から)
+     */
+    public static List<String> findDoRealizeAccounts(final OrmRepository rep, LocalDate valueDay,
+            String lastAccountId, int size) {
+        return rep.tmpl().<String> find(
+                "select distinct c.accountId from Cashflow c where c.valueDay=?1 and c.statusType in ?2 and c.accountId>?3 order by c.accountId",
+                new Pagination(1, size).ignoreTotal(), valueDay, ActionStatusType.unprocessedTypes,
+                lastAccountId == null ? "" : lastAccountId).getList();
+    }
+
+    /**
+     * 指定受渡日で実現対象となるキャッシュフローを ID 順に逐次検索します。
+     * <p>pageSize 件単位のキーセット検索となるため、大量件数でも一定のメモリで処理できます。
+     */
+    public static Stream<Cashflow> streamDoRealize(final OrmRepository rep, LocalDate valueDay, int pageSize) {
+        return rep.tmpl().streamByKey(
+                "from Cashflow c where c.valueDay=?1 and c.statusType in ?2 and c.id>?3 order by c.id",
+                pageSize, Cashflow::getId, 0L, valueDay, ActionStatusType.unprocessedTypes);
+    }
+
+    /**
+     * 指定受渡日で実現対象となるキャッシュフローを ID 順に逐次検索します。(口座別)
+     * <p>pageSize 件単位のキーセット検索となるため、大量件数でも一定のメモリで処理できます。
+     */
+    public static Stream<Cashflow> streamDoRealize(final OrmRepository rep, LocalDate valueDay, String accountId,
+            int pageSize) {
+        return rep.tmpl().streamByKey(
+                "from Cashflow c where c.valueDay=?1 and c.accountId=?2 and c.statusType in ?3 and c.id>?4 order by c.id",
+                pageSize, Cashflow::getId, 0L, valueDay, accountId, ActionStatusType.unprocessedTypes);
+    }
+
     /**
      * キャッシュフローを登録します。
      * 受渡日を迎えていた時はそのまま残高へ反映します。
@@ -135,6 +197,7 @@ public class Cashflow extends OrmActiveMetaRecord<Cashflow> {
         Validator.validate((v) -> v.checkField(now.beforeEqualsDay(p.getValueDay()),
                 "valueDay", AssetErrorKeys.CashflowBeforeEqualsDay));
         Cashflow cf = p.create(now).save(rep);
+        rep.dh().ledger().ifPresent((ledger) -> ledger.apply(cf.accountId, cf.currency, cf.amount, cf.valueDay));
         return cf.canRealize(rep) ? cf.realize(rep) : cf;
     }
 
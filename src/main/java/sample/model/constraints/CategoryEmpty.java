@@ -20,7 +20,7 @@ import sample.util.Regex;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface CategoryEmpty {
     String message() default "{error.domain.category}";
 
@@ -31,10 +31,10 @@ public @interface CategoryEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 30;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default Regex.rAscii;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
@@ -20,7 +20,7 @@ import org.hibernate.validator.constraints.NotBlank;
 @ReportAsSingleViolation
 @NotBlank
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface Currency {
     String message() default "{error.domain.currency}";
 
@@ -31,7 +31,7 @@ public @interface Currency {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 3;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default "^[a-zA-Z]{3}$";
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
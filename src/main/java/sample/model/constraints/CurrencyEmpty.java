@@ -17,7 +17,7 @@ import javax.validation.constraints.*;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface CurrencyEmpty {
     String message() default "{error.domain.currency}";
 
@@ -28,7 +28,7 @@ public @interface CurrencyEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 3;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default "^[a-zA-Z]{3}$";
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
@@ -22,7 +22,7 @@ import sample.util.Regex;
 @ReportAsSingleViolation
 @NotBlank
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface Description {
     String message() default "{error.domain.description}";
 
@@ -33,10 +33,10 @@ public @interface Description {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 400;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default Regex.rWord;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
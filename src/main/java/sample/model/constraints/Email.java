@@ -22,7 +22,7 @@ import org.hibernate.validator.constraints.NotBlank;
 @ReportAsSingleViolation
 @NotBlank
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface Email {
     String message() default "{error.domain.email}";
 
@@ -33,10 +33,10 @@ public @interface Email {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 256;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default ".*";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
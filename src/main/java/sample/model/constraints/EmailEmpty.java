@@ -19,7 +19,7 @@ import javax.validation.constraints.*;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface EmailEmpty {
     String message() default "{error.domain.email}";
 
@@ -30,10 +30,10 @@ public @interface EmailEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 256;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default ".*";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
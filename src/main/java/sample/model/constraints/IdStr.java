@@ -20,7 +20,7 @@ import org.hibernate.validator.constraints.NotBlank;
 @ReportAsSingleViolation
 @NotBlank
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface IdStr {
     String message() default "{error.domain.idStr}";
 
@@ -31,10 +31,10 @@ public @interface IdStr {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 32;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default "^\\p{ASCII}*$";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
@@ -17,7 +17,7 @@ import javax.validation.constraints.*;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface IdStrEmpty {
     String message() default "{error.domain.idStr}";
 
@@ -28,10 +28,10 @@ public @interface IdStrEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 32;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default "^\\p{ASCII}*$";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
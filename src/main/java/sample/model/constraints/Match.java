@@ -0,0 +1,37 @@
+package sample.model.constraints;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.*;
+
+import javax.validation.*;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 正規表現に一致する文字列を表現する制約注釈。
+ * <p>{@link Pattern} と同じ用途ですが、判定は {@link sample.util.Checker} を経由するため
+ * {@link sample.util.Regex} の文字種定義は正規表現を用いずに判定されます。
+ */
+@Documented
+@Constraint(validatedBy = { MatchValidator.class })
+@Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
+@Retention(RUNTIME)
+public @interface Match {
+    String message() default "{javax.validation.constraints.Pattern.message}";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    String regexp();
+
+    Pattern.Flag[] flags() default {};
+
+    @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
+    @Retention(RUNTIME)
+    @Documented
+    public @interface List {
+        Match[] value();
+    }
+}
@@ -0,0 +1,33 @@
+package sample.model.constraints;
+
+import java.util.function.Predicate;
+
+import javax.validation.*;
+import javax.validation.constraints.Pattern;
+
+import sample.util.Checker;
+
+/**
+ * {@link Match} の検証処理。(nullは許容)
+ */
+public class MatchValidator implements ConstraintValidator<Match, CharSequence> {
+
+    private Predicate<CharSequence> matcher;
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize(Match constraint) {
+        int flags = 0;
+        for (Pattern.Flag flag : constraint.flags()) {
+            flags |= flag.getValue();
+        }
+        matcher = Checker.matcher(constraint.regexp(), flags);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || matcher.test(value);
+    }
+
+}
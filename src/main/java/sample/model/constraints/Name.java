@@ -21,7 +21,7 @@ import org.hibernate.validator.constraints.NotBlank;
 @ReportAsSingleViolation
 @NotBlank
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface Name {
     String message() default "{error.domain.name}";
 
@@ -32,10 +32,10 @@ public @interface Name {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 30;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default ".*";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
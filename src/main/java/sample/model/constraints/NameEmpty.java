@@ -18,7 +18,7 @@ import javax.validation.constraints.Size;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface NameEmpty {
     String message() default "{error.domain.name}";
 
@@ -29,10 +29,10 @@ public @interface NameEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 30;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default ".*";
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
@@ -19,7 +19,7 @@ import sample.util.Regex;
 @Retention(RUNTIME)
 @ReportAsSingleViolation
 @Size
-@Pattern(regexp = "")
+@Match(regexp = "")
 public @interface OutlineEmpty {
     String message() default "{error.domain.outline}";
 
@@ -30,10 +30,10 @@ public @interface OutlineEmpty {
     @OverridesAttribute(constraint = Size.class, name = "max")
     int max() default 200;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "regexp")
+    @OverridesAttribute(constraint = Match.class, name = "regexp")
     String regexp() default Regex.rWord;
 
-    @OverridesAttribute(constraint = Pattern.class, name = "flags")
+    @OverridesAttribute(constraint = Match.class, name = "flags")
     Pattern.Flag[] flags() default {};
 
     @Target({ METHOD, FIELD, ANNOTATION_TYPE, CONSTRUCTOR, PARAMETER })
@@ -2,6 +2,7 @@ package sample.model.master;
 
 import java.time.*;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import javax.persistence.*;
 import javax.validation.Valid;
@@ -25,7 +26,8 @@ public class Holiday extends OrmActiveMetaRecord<Holiday> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "holiday_seq", sequenceName = "holiday_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "holiday_seq")
     private Long id;
     /** 休日区分 */
     @Category
@@ -73,11 +75,34 @@ public class Holiday extends OrmActiveMetaRecord<Holiday> {
                 category, LocalDate.ofYearDay(year, 1), DateUtils.dayTo(year));
     }
 
-    /** 休日マスタを登録します。 */
-    public static void register(final OrmRepository rep, final RegHoliday p) {
-        rep.tmpl().execute("delete from Holiday h where h.category=?1 and h.day between ?2 and ?3",
-                p.category, LocalDate.ofYearDay(p.year, 1), DateUtils.dayTo(p.year));
-        p.list.forEach(v -> v.create(p).save(rep));
+    /**
+     * 休日マスタを登録します。
+     * <p>登録済の休日と差分を取り、追加/名称変更/削除が必要な休日のみを JDBC バッチで反映します。
+     * @return 反映した変更内容
+     */
+    public static HolidayChanges register(final OrmRepository rep, final RegHoliday p) {
+        Map<LocalDate, Holiday> current = find(rep, p.year, p.category).stream()
+                .collect(Collectors.toMap(Holiday::getDay, (holiday) -> holiday));
+        Map<LocalDate, RegHolidayItem> items = new LinkedHashMap<>();
+        p.list.forEach((item) -> items.put(item.getDay(), item));
+
+        List<Holiday> added = new ArrayList<>();
+        List<LocalDate> renamed = new ArrayList<>();
+        items.forEach((day, item) -> {
+            Holiday holiday = current.remove(day);
+            if (holiday == null) {
+                added.add(item.create(p));
+            } else if (!Objects.equals(holiday.getName(), item.getName())) {
+                holiday.setName(item.getName());
+                rep.update(holiday);
+                renamed.add(day);
+            }
+        });
+        current.values().forEach(rep::delete);
+        rep.saveAll(added); // 更新/削除分もあわせてバッチで反映
+        return new HolidayChanges(p.category, p.year,
+                added.stream().map(Holiday::getDay).collect(Collectors.toList()),
+                new ArrayList<>(current.keySet()), renamed);
     }
 
     /** 登録パラメタ */
@@ -99,6 +124,33 @@ public class Holiday extends OrmActiveMetaRecord<Holiday> {
         }
     }
 
+    /** 休日マスタの登録による変更内容 */
+    @Value
+    public static class HolidayChanges implements Dto {
+        private static final long serialVersionUID = 1l;
+        private String category;
+        private int year;
+        /** 追加された休日 */
+        private List<LocalDate> added;
+        /** 削除された休日 */
+        private List<LocalDate> removed;
+        /** 名称が変更された休日 */
+        private List<LocalDate> renamed;
+
+        /** 変更が無い時はtrue。 */
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && renamed.isEmpty();
+        }
+
+        /** 変更のあった休日一覧を返します。 */
+        public List<LocalDate> days() {
+            List<LocalDate> days = new ArrayList<>(added);
+            days.addAll(removed);
+            days.addAll(renamed);
+            return days;
+        }
+    }
+
     /** 登録パラメタ(要素) */
     @Data
     @NoArgsConstructor
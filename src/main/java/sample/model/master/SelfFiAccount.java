@@ -18,7 +18,8 @@ public class SelfFiAccount extends OrmActiveRecord<SelfFiAccount> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "self_fi_account_seq", sequenceName = "self_fi_account_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "self_fi_account_seq")
     private Long id;
     /** 利用用途カテゴリ */
     @Category
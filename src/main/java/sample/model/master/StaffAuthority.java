@@ -21,7 +21,8 @@ public class StaffAuthority extends OrmActiveRecord<StaffAuthority> {
 
     /** ID */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "staff_authority_seq", sequenceName = "staff_authority_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "staff_authority_seq")
     private Long id;
     /** 社員ID */
     @IdStr
@@ -1,16 +1,20 @@
 package sample.usecase;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
+import sample.context.job.JobStep.JobChunk;
+import sample.context.job.PartitionHandler.PartitionResult;
 import sample.context.lock.IdLockHandler.LockType;
-import sample.context.orm.DefaultRepository;
+import sample.context.orm.*;
 import sample.model.asset.*;
 import sample.model.asset.CashInOut.FindCashInOut;
+import sample.util.Money;
 
 /**
  * 資産ドメインに対する社内ユースケース処理。
@@ -21,70 +25,144 @@ public class AssetAdminService extends ServiceSupport {
 
     /**
      * 振込入出金依頼を検索します。
+     * <p>検索結果はエンティティを経由せずに resultClass の DTO で返します。
      * low: 口座横断的なので割り切りでREADロックはかけません。
+     * @param resultClass CashInOut と同名のフィールドを持つ DTO
      */
-    @Transactional(DefaultRepository.BeanNameTx)
-    public List<CashInOut> findCashInOut(final FindCashInOut p) {
-        return CashInOut.find(rep(), p);
+    @Transactional(value = DefaultRepository.BeanNameTx, readOnly = true)
+    public <R> List<R> findCashInOut(final FindCashInOut p, Class<R> resultClass) {
+        return CashInOut.find(rep(), p, resultClass);
     }
 
     /**
      * 振込出金依頼を締めます。
+     * <p>口座単位のパーティションに分割して並列に実行します。各口座の処理は口座ロック下の個別トランザクションで行われます。
      */
     public void closingCashOut() {
-        audit().audit("振込出金依頼の締め処理をする", () -> tx(() -> closingCashOutInTx()));
+        audit().audit("振込出金依頼の締め処理をする", () -> {
+            List<String> accountIds = tx(() -> CashInOut.findUnprocessedAccounts(rep()));
+            partition().execute("closingCashOut", accountIds, this::closingCashOutByAccount);
+        });
+    }
+
+    /**
+     * 口座ID順に指定件数の口座を対象として振込出金依頼を締めます。
+     * <p>ジョブのステップからチャンク単位に呼び出される事を想定しています。
+     * 処理に失敗した口座がある時はチェックポイントを進めずに例外とします。
+     * @param lastAccountId 処理済の最終口座ID(初回はnull)
+     * @param size 1チャンクで対象とする口座件数
+     */
+    public JobChunk closingCashOut(String lastAccountId, int size) {
+        List<String> accountIds = tx(() -> CashInOut.findUnprocessedAccounts(rep(), lastAccountId, size));
+        if (accountIds.isEmpty()) {
+            return new JobChunk(0, lastAccountId, true);
+        }
+        PartitionResult result = partition().execute("closingCashOut", accountIds, this::closingCashOutByAccount);
+        return JobChunk.of(result, accountIds, size);
     }
 
-    private void closingCashOutInTx() {
-        //low: 以降の処理は口座単位でfilter束ねしてから実行する方が望ましい。
-        //low: 大量件数の処理が必要な時はそのままやるとヒープが死ぬため、idソートでページング分割して差分実行していく。
-        CashInOut.findUnprocessed(rep()).forEach(cio -> {
-            //low: TX内のロックが適切に動くかはIdLockHandlerの実装次第。
-            // 調整が難しいようなら大人しく営業停止時間(IdLock必要な処理のみ非活性化されている状態)を作って、
-            // ロック無しで一気に処理してしまう方がシンプル。
-            idLock().call(cio.getAccountId(), LockType.Write, () -> {
-                try {
-                    cio.process(rep());
-                    //low: SQLの発行担保。扱う情報に相互依存が無く、セッションキャッシュはリークしがちなので都度消しておく。
-                    rep().flushAndClear();
-                } catch (Exception e) {
-                    log.error("[" + cio.getId() + "] 振込出金依頼の締め処理に失敗しました。", e);
-                    try {
-                        cio.error(rep());
-                        rep().flush();
-                    } catch (Exception ex) {
-                        //low: 2重障害(恐らくDB起因)なのでloggerのみの記載に留める
-                    }
+    private int closingCashOutByAccount(String accountId) {
+        return tx(accountId, LockType.Write, () -> closingCashOutInTx(accountId));
+    }
+
+    private int closingCashOutInTx(String accountId) {
+        int count = 0;
+        try (Stream<CashInOut> stream = CashInOut.streamUnprocessedInDay(rep(), accountId, OrmRepository.DefaultBatchSize)) {
+            for (Iterator<CashInOut> itr = stream.iterator(); itr.hasNext();) {
+                if (closingCashOutItem(itr.next())) {
+                    count++;
                 }
-            });
-        });
+            }
+        }
+        return count;
+    }
+
+    /** 振込出金依頼を締めます。失敗した時は依頼をエラー状態としてfalseを返します。 */
+    private boolean closingCashOutItem(final CashInOut cio) {
+        try {
+            cio.process(rep());
+            //low: SQLの発行担保。扱う情報に相互依存が無く、セッションキャッシュはリークしがちなので都度消しておく。
+            rep().flushAndClear();
+            return true;
+        } catch (Exception e) {
+            log.error("[" + cio.getId() + "] 振込出金依頼の締め処理に失敗しました。", e);
+            try {
+                cio.error(rep());
+                rep().flush();
+            } catch (Exception ex) {
+                //low: 2重障害(恐らくDB起因)なのでloggerのみの記載に留める
+            }
+            return false;
+        }
     }
 
     /**
      * キャッシュフローを実現します。
-     * <p>受渡日を迎えたキャッシュフローを残高に反映します。
+     * <p>受渡日を迎えたキャッシュフローを口座単位のパーティションに分割して並列に残高へ反映します。
+     * 残高は口座通貨単位に集計した金額で一度だけ更新されます。
      */
     public void realizeCashflow() {
-        audit().audit("キャッシュフローを実現する", () -> tx(() -> realizeCashflowInTx()));
+        audit().audit("キャッシュフローを実現する", () -> {
+            //low: 日回し後の実行を想定
+            LocalDate day = dh().time().day();
+            List<String> accountIds = tx(() -> Cashflow.findDoRealizeAccounts(rep(), day));
+            partition().execute("realizeCashflow", accountIds, (accountId) -> realizeCashflowByAccount(accountId, day));
+        });
     }
 
-    private void realizeCashflowInTx() {
-        //low: 日回し後の実行を想定
+    /**
+     * 口座ID順に指定件数の口座を対象としてキャッシュフローを実現します。
+     * <p>ジョブのステップからチャンク単位に呼び出される事を想定しています。
+     * 処理に失敗した口座がある時はチェックポイントを進めずに例外とします。
+     * @param lastAccountId 処理済の最終口座ID(初回はnull)
+     * @param size 1チャンクで対象とする口座件数
+     */
+    public JobChunk realizeCashflow(String lastAccountId, int size) {
         LocalDate day = dh().time().day();
-        for (final Cashflow cf : Cashflow.findDoRealize(rep(), day)) {
-            idLock().call(cf.getAccountId(), LockType.Write, () -> {
-                try {
-                    cf.realize(rep());
-                    rep().flushAndClear();
-                } catch (Exception e) {
-                    log.error("[" + cf.getId() + "] キャッシュフローの実現に失敗しました。", e);
-                    try {
-                        cf.error(rep());
-                        rep().flush();
-                    } catch (Exception ex) {
-                    }
+        List<String> accountIds = tx(() -> Cashflow.findDoRealizeAccounts(rep(), day, lastAccountId, size));
+        if (accountIds.isEmpty()) {
+            return new JobChunk(0, lastAccountId, true);
+        }
+        PartitionResult result = partition().execute("realizeCashflow", accountIds,
+                (accountId) -> realizeCashflowByAccount(accountId, day));
+        return JobChunk.of(result, accountIds, size);
+    }
+
+    private int realizeCashflowByAccount(String accountId, LocalDate day) {
+        return tx(accountId, LockType.Write, () -> realizeCashflowInTx(accountId, day));
+    }
+
+    private int realizeCashflowInTx(String accountId, LocalDate day) {
+        Map<String, Money> amounts = new TreeMap<>();
+        int count = 0;
+        try (Stream<Cashflow> stream = Cashflow.streamDoRealize(rep(), day, accountId, OrmRepository.DefaultBatchSize)) {
+            for (Iterator<Cashflow> itr = stream.iterator(); itr.hasNext();) {
+                if (realizeCashflowItem(itr.next(), amounts)) {
+                    count++;
                 }
-            });
+            }
+        }
+        //low: 残高の参照/更新は口座通貨単位に1回で済ませる
+        amounts.forEach((currency, amount) -> CashBalance.getOrNew(rep(), accountId, currency).add(rep(), amount.decimal()));
+        return count;
+    }
+
+    /** キャッシュフローを実現済とし、金額を通貨別に集計します。失敗した時はキャッシュフローをエラー状態としてfalseを返します。 */
+    private boolean realizeCashflowItem(final Cashflow cf, final Map<String, Money> amounts) {
+        try {
+            cf.process(rep());
+            rep().flush();
+            amounts.merge(cf.getCurrency(), Money.of(cf.getAmount(), cf.getCurrency()), Money::add);
+            return true;
+        } catch (Exception e) {
+            log.error("[" + cf.getId() + "] キャッシュフローの実現に失敗しました。", e);
+            try {
+                cf.error(rep());
+                rep().flush();
+            } catch (Exception ex) {
+                //low: 2重障害(恐らくDB起因)なのでloggerのみの記載に留める
+            }
+            return false;
         }
     }
 
@@ -1,13 +1,14 @@
 package sample.usecase;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
 import sample.context.actor.Actor;
 import sample.context.lock.IdLockHandler.LockType;
 import sample.model.asset.CashInOut;
-import sample.model.asset.CashInOut.RegCashOut;
+import sample.model.asset.CashInOut.*;
 
 /**
  * 資産ドメインに対する顧客ユースケース処理。
@@ -23,14 +24,16 @@ public class AssetService extends ServiceSupport {
 
     /**
      * 未処理の振込依頼情報を検索します。
+     * <p>検索結果はエンティティを経由せずに resultClass の DTO で返します。
      * low: 参照系は口座ロックが必要無いケースであれば@Transactionalでも十分
      * low: CashInOutは情報過多ですがアプリケーション層では公開対象を特定しにくい事もあり、
-     * UI層に最終判断を委ねています。
+     * UI層に最終判断 ( 取得項目 ) を委ねています。
+     * @param resultClass CashInOut と同名のフィールドを持つ DTO
      */
-    public List<CashInOut> findUnprocessedCashOut() {
+    public <R> List<R> findUnprocessedCashOut(Class<R> resultClass) {
         final String accId = actor().getId();
         return tx(accId, LockType.Read, () -> {
-            return CashInOut.findUnprocessed(rep(), accId);
+            return CashInOut.findUnprocessed(rep(), accId, resultClass);
         });
     }
 
@@ -54,4 +57,21 @@ public class AssetService extends ServiceSupport {
         });
     }
 
+    /**
+     * 振込出金依頼を一括でします。
+     * <p>依頼は口座単位にまとめて審査/登録され、監査ログは一括依頼単位に記録されます。
+     * @return 依頼毎の受付結果 (依頼順)
+     */
+    public List<CashOutResult> withdrawAll(final List<RegCashOut> list) {
+        return audit().audit("振込出金依頼を一括でします", () -> {
+            list.forEach((p) -> p.setAccountId(actor().getId())); // 顧客側はログイン利用者で強制上書き
+            Set<String> accountIds = list.stream().map(RegCashOut::getAccountId).collect(Collectors.toSet());
+            List<CashOutResult> results = tx(accountIds, LockType.Write, () -> {
+                return CashInOut.withdrawAll(rep(), businessDay(), list);
+            });
+            results.stream().filter(CashOutResult::isAccepted).forEach((result) -> mail().sendWithdrawal(result.getCio()));
+            return results;
+        });
+    }
+
 }
@@ -2,11 +2,13 @@ package sample.usecase;
 
 import java.util.*;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import sample.context.orm.DefaultRepository;
+import sample.model.BusinessDayHandler.HolidayAccessor;
 import sample.model.master.*;
 import sample.model.master.Holiday.RegHoliday;
 
@@ -16,6 +18,9 @@ import sample.model.master.Holiday.RegHoliday;
 @Service
 public class MasterAdminService extends ServiceSupport {
 
+    @Autowired
+    private HolidayAccessor holidayAccessor;
+
     /** 社員を取得します。 */
     @Transactional(DefaultRepository.BeanNameTx)
     @Cacheable("MasterAdminService.getStaff")
@@ -30,8 +35,9 @@ public class MasterAdminService extends ServiceSupport {
         return StaffAuthority.find(rep(), staffId);
     }
 
+    /** 休日情報を登録します。(登録後に営業日カレンダーを再生成します) */
     public void registerHoliday(final RegHoliday p) {
-        audit().audit("休日情報を登録する", () -> tx(() -> Holiday.register(rep(), p)));
+        audit().audit("休日情報を登録する", () -> tx(() -> holidayAccessor.register(rep(), p)));
     }
 
 }
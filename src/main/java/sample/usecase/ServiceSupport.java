@@ -1,5 +1,6 @@
 package sample.usecase;
 
+import java.util.*;
 import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import lombok.Setter;
 import sample.context.DomainHelper;
 import sample.context.actor.Actor;
 import sample.context.audit.AuditHandler;
+import sample.context.job.PartitionHandler;
 import sample.context.lock.IdLockHandler;
 import sample.context.lock.IdLockHandler.LockType;
 import sample.context.orm.DefaultRepository;
@@ -40,6 +42,8 @@ public abstract class ServiceSupport {
 
     @Autowired
     private AuditHandler audit;
+    @Autowired
+    private PartitionHandler partition;
     @Autowired(required = false)
     private BusinessDayHandler businessDay;
 
@@ -61,18 +65,63 @@ public abstract class ServiceSupport {
     /** 口座ロック付でトランザクション処理を実行します。 */
     protected <T> T tx(String accountId, LockType lockType, final Supplier<T> callable) {
         return idLock.call(accountId, lockType, () -> {
-            return tx(callable);
+            return txLocked(Collections.singleton(accountId), callable);
         });
     }
 
     /** 口座ロック付でトランザクション処理を実行します。 */
     protected void tx(String accountId, LockType lockType, final Runnable callable) {
-        idLock.call(accountId, lockType, () -> {
-            tx(callable);
+        tx(accountId, lockType, () -> {
+            callable.run();
+            return true;
+        });
+    }
+
+    /**
+     * 複数口座のロック付でトランザクション処理を実行します。
+     * <p>ロックは口座IDの昇順で取得されるため、口座を跨ぐ処理でもデッドロックは発生しません。
+     */
+    protected <T> T tx(Collection<String> accountIds, LockType lockType, final Supplier<T> callable) {
+        return idLock.callAll(accountIds, lockType, () -> {
+            return txLocked(accountIds, callable);
+        });
+    }
+
+    /** 複数口座のロック付でトランザクション処理を実行します。 */
+    protected void tx(Collection<String> accountIds, LockType lockType, final Runnable callable) {
+        tx(accountIds, lockType, () -> {
+            callable.run();
+            return true;
+        });
+    }
+
+    /** 口座毎のロック種別を指定して、複数口座のロック付でトランザクション処理を実行します。 */
+    protected <T> T tx(Map<String, LockType> accountLocks, final Supplier<T> callable) {
+        return idLock.callAll(accountLocks, () -> {
+            return txLocked(accountLocks.keySet(), callable);
+        });
+    }
+
+    /** 口座毎のロック種別を指定して、複数口座のロック付でトランザクション処理を実行します。 */
+    protected void tx(Map<String, LockType> accountLocks, final Runnable callable) {
+        tx(accountLocks, () -> {
+            callable.run();
             return true;
         });
     }
 
+    /**
+     * 口座ロック下でトランザクション処理を実行します。
+     * <p>コミット前に口座ロックが失効していない事を検証し、失効していた時はロールバックします。
+     */
+    private <T> T txLocked(Collection<String> accountIds, final Supplier<T> callable) {
+        return tx(() -> {
+            T ret = callable.get();
+            accountIds.forEach(idLock::verify);
+            return ret;
+        });
+    }
+
     /** ドメイン層向けヘルパークラスを返します。 */
     protected DomainHelper dh() {
         return dh;
@@ -93,6 +142,11 @@ public abstract class ServiceSupport {
         return audit;
     }
 
+    /** パーティション並列実行ユーティリティを返します。 */
+    protected PartitionHandler partition() {
+        return partition;
+    }
+
     /** サービスメールユーティリティを返します。 */
     protected ServiceMailDeliver mail() {
         Assert.notNull(mail, "mail is not setup.");
@@ -1,22 +1,31 @@
 package sample.usecase;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import javax.persistence.PersistenceException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import lombok.extern.slf4j.Slf4j;
+
 import sample.context.AppSetting;
 import sample.context.AppSetting.FindAppSetting;
 import sample.context.audit.*;
 import sample.context.audit.AuditActor.FindAuditActor;
 import sample.context.audit.AuditEvent.FindAuditEvent;
+import sample.context.job.JobStep.JobChunk;
 import sample.context.orm.*;
+import sample.model.asset.CashBalance;
 
 /**
  * システムドメインに対する社内ユースケース処理。
  */
 @Service
+@Slf4j
 public class SystemAdminService extends ServiceSupport {
 
     @Autowired
@@ -44,8 +53,54 @@ public class SystemAdminService extends ServiceSupport {
         audit().audit("アプリケーション設定情報を変更する", () -> dh().settingSet(id, value));
     }
 
+    /**
+     * 営業日を進めます。
+     * <p>新しい営業日の口座残高は繰越により事前に作成されます。繰越はチャンク単位にコミットされるため、
+     * 繰越中に参照されてその場で作成された残高があっても他の口座の繰越には影響しません。
+     */
     public void processDay() {
-        audit().audit("営業日を進める", () -> dh().time().proceedDay(businessDay().day(1)));
+        audit().audit("営業日を進める", () -> {
+            dh().time().proceedDay(businessDay().day(1));
+            LocalDate day = dh().time().day();
+            int count = 0;
+            JobChunk chunk = null;
+            do {
+                chunk = rollover(day, chunk != null ? chunk.getCheckpoint() : null);
+                count += chunk.getProcessed();
+            } while (!chunk.isLast());
+            log.info("[" + day + "] 口座残高を繰越しました。 [" + count + "件]");
+        });
+    }
+
+    /**
+     * 口座残高の繰越を1チャンク分コミットします。
+     * <p>並行して作成された残高と一意制約で競合した時は、同じチャンクを口座通貨単位のトランザクションで繰越します。
+     * (この時に競合した口座通貨は作成済として扱います)
+     */
+    private JobChunk rollover(LocalDate day, String checkpoint) {
+        int size = OrmRepository.DefaultBatchSize;
+        try {
+            return tx(() -> CashBalance.rollover(rep(), day, checkpoint, size));
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+            log.warn("[" + day + "] 口座残高の繰越が競合したため口座単位に繰越します。 [" + checkpoint + "]");
+        }
+        List<CashBalance> list = tx(() -> CashBalance.findRollover(rep(), day, checkpoint, size));
+        if (list.isEmpty()) {
+            return new JobChunk(0, checkpoint, true);
+        }
+        int count = 0;
+        for (CashBalance prev : list) {
+            try {
+                tx(() -> {
+                    CashBalance.getOrNew(rep(), prev.getAccountId(), prev.getCurrency());
+                    rep().flush();
+                });
+                count++;
+            } catch (PersistenceException | DataIntegrityViolationException e) {
+                // 並行して作成済
+            }
+        }
+        return new JobChunk(count, String.valueOf(list.get(list.size() - 1).getId()), list.size() < size);
     }
 
 }
@@ -1,49 +1,53 @@
 package sample.usecase.job;
 
-import java.util.function.Supplier;
+import java.util.*;
 
-import org.springframework.beans.factory.annotation.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.PlatformTransactionManager;
 
 import lombok.Setter;
-import sample.context.orm.DefaultRepository;
-import sample.usecase.ServiceUtils;
+import sample.context.Timestamper;
+import sample.context.job.*;
+import sample.context.job.JobHandler.JobStatus;
+import sample.usecase.AssetAdminService;
 
 /**
  * アプリケーション層のジョブ実行を行います。
+ * <p>日次ジョブをチェックポイント付のジョブとして非同期に実行します。失敗/中断したジョブは
+ * 同一営業日に再度受け付ける事で、処理済のチャンクを飛ばして再開されます。
  * <p>独自にトランザクションを管理するので、サービスのトランザクション内で 呼び出さないように注意してください。
  */
 @Component
 @Setter
 public class ServiceJobExecutor {
+    public static final String JobClosingCashOut = "closingCashOut";
+    public static final String JobRealizeCashflow = "realizeCashflow";
 
     @Autowired
-    private DefaultRepository rep;
+    private JobHandler job;
     @Autowired
-    @Qualifier(DefaultRepository.BeanNameTx)
-    private PlatformTransactionManager tx;
+    private Timestamper time;
+    @Autowired
+    private AssetAdminService asset;
 
-    /** トランザクション処理を実行します。 */
-    private <T> T tx(Supplier<T> callable) {
-        return ServiceUtils.tx(tx, callable);
-    }
+    /** 1チャンクで処理する口座件数 */
+    private int chunkSize = 100;
 
-    /** トランザクション処理を実行します。 */
-    private void tx(Runnable command) {
-        ServiceUtils.tx(tx, command);
+    /** 振込出金依頼の締めを受け付けます。 */
+    public JobInstance submitClosingCashOut() {
+        return job.submit(JobClosingCashOut, time.day(), Arrays.asList(
+                JobStep.of("closingCashOut", (checkpoint) -> asset.closingCashOut(checkpoint, chunkSize))));
     }
 
-    public int callbackSample() {// for warning
-        return tx(() -> {
-            return rep.hashCode();
-        });
+    /** キャッシュフローの実現を受け付けます。 */
+    public JobInstance submitRealizeCashflow() {
+        return job.submit(JobRealizeCashflow, time.day(), Arrays.asList(
+                JobStep.of("realizeCashflow", (checkpoint) -> asset.realizeCashflow(checkpoint, chunkSize))));
     }
 
-    public void commandSample() {// for warning
-        tx(() -> {
-            rep.hashCode();
-        });
+    /** ジョブの実行状況を返します。 */
+    public JobStatus status(Long id) {
+        return job.status(id);
     }
 
 }
@@ -1,7 +1,6 @@
 package sample.util;
 
 import java.math.*;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 計算ユーティリティ。
@@ -9,7 +8,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public final class Calculator {
 
-    private final AtomicReference<BigDecimal> value = new AtomicReference<>();
+    private BigDecimal value;
     /** 小数点以下桁数 */
     private int scale = 0;
     /** 端数定義。標準では切り捨て */
@@ -21,14 +20,24 @@ public final class Calculator {
 
     private Calculator(Number v) {
         try {
-            this.value.set(new BigDecimal(v.toString()));
+            this.value = decimal(v);
         } catch (NumberFormatException e) {
-            this.value.set(BigDecimal.ZERO);
+            this.value = BigDecimal.ZERO;
         }
     }
 
     private Calculator(BigDecimal v) {
-        this.value.set(v);
+        this.value = v;
+    }
+
+    /** 数値を文字列を経由せずに変換します。(整数型以外は文字列表現で変換) */
+    private static BigDecimal decimal(Number v) {
+        if (v instanceof BigDecimal) {
+            return (BigDecimal) v;
+        } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            return BigDecimal.valueOf(v.longValue());
+        }
+        return new BigDecimal(v.toString());
     }
 
     /**
@@ -63,7 +72,7 @@ public final class Calculator {
     /** 与えた計算値を自身が保持する値に加えます。 */
     public Calculator add(Number v) {
         try {
-            add(new BigDecimal(v.toString()));
+            add(decimal(v));
         } catch (NumberFormatException e) {
         }
         return this;
@@ -71,7 +80,7 @@ public final class Calculator {
 
     /** 与えた計算値を自身が保持する値に加えます。*/
     public Calculator add(BigDecimal v) {
-        value.set(rounding(value.get().add(v)));
+        value = rounding(value.add(v));
         return this;
     }
 
@@ -82,7 +91,7 @@ public final class Calculator {
     /** 自身が保持する値へ与えた計算値を引きます。*/
     public Calculator subtract(Number v) {
         try {
-            subtract(new BigDecimal(v.toString()));
+            subtract(decimal(v));
         } catch (NumberFormatException e) {
         }
         return this;
@@ -90,14 +99,14 @@ public final class Calculator {
 
     /** 自身が保持する値へ与えた計算値を引きます。 */
     public Calculator subtract(BigDecimal v) {
-        value.set(rounding(value.get().subtract(v)));
+        value = rounding(value.subtract(v));
         return this;
     }
 
     /** 自身が保持する値へ与えた計算値を掛けます。*/
     public Calculator multiply(Number v) {
         try {
-            multiply(new BigDecimal(v.toString()));
+            multiply(decimal(v));
         } catch (NumberFormatException e) {
         }
         return this;
@@ -105,14 +114,14 @@ public final class Calculator {
 
     /** 自身が保持する値へ与えた計算値を掛けます。*/
     public Calculator multiply(BigDecimal v) {
-        value.set(rounding(value.get().multiply(v)));
+        value = rounding(value.multiply(v));
         return this;
     }
 
     /** 与えた計算値で自身が保持する値を割ります。*/
     public Calculator divideBy(Number v) {
         try {
-            divideBy(new BigDecimal(v.toString()));
+            divideBy(decimal(v));
         } catch (NumberFormatException e) {
         }
         return this;
@@ -120,9 +129,7 @@ public final class Calculator {
 
     /** 与えた計算値で自身が保持する値を割ります。*/
     public Calculator divideBy(BigDecimal v) {
-        BigDecimal ret = roundingAlways ? value.get().divide(v, scale, mode)
-                : value.get().divide(v, defaultScale, mode);
-        value.set(ret);
+        value = roundingAlways ? value.divide(v, scale, mode) : value.divide(v, defaultScale, mode);
         return this;
     }
 
@@ -138,8 +145,7 @@ public final class Calculator {
 
     /** 計算結果をBigDecimal型で返します。*/
     public BigDecimal decimal() {
-        BigDecimal v = value.get();
-        return v != null ? v.setScale(scale, mode) : BigDecimal.ZERO;
+        return value != null ? value.setScale(scale, mode) : BigDecimal.ZERO;
     }
 
     /** 開始値0で初期化されたCalculator */
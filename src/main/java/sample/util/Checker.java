@@ -1,16 +1,112 @@
 package sample.util;
 
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.*;
+import java.util.regex.Pattern;
+
 /**
  * 簡易的な入力チェッカーを表現します。
+ * <p>{@link Regex} の正規表現はクラスの初期化時にコンパイルした上で保持します。文字種定義は
+ * 正規表現を経由せずに文字コード単位で判定します。
  */
 public abstract class Checker {
 
+    /** Regex 定数毎の判定処理 (初期化後は変更しません) */
+    private static final Map<String, Predicate<CharSequence>> Matchers = new HashMap<>();
+
+    static {
+        registerChars(Regex.rAscii, (c) -> c <= 0x7F);
+        registerChars(Regex.rAlpha, (c) -> isAlpha(c));
+        registerChars(Regex.rAlphaUpper, (c) -> 'A' <= c && c <= 'Z');
+        registerChars(Regex.rAlphaLower, (c) -> 'a' <= c && c <= 'z');
+        registerChars(Regex.rAlnum, (c) -> isAlnum(c));
+        registerChars(Regex.rSymbol, (c) -> isSymbol(c));
+        registerChars(Regex.rAlnumSymbol, (c) -> isAlnum(c) || isSymbol(c));
+        registerChars(Regex.rNumberNatural, (c) -> isDigit(c));
+        registerChars(Regex.rHiragana, (c) -> 0x3040 <= c && c <= 0x309F);
+        registerChars(Regex.rKatakana, (c) -> 0x30A0 <= c && c <= 0x30FF);
+        registerChars(Regex.rHankata, (c) -> isHankata(c));
+        registerChars(Regex.rHankaku, (c) -> c <= 0x7F || isHankata(c));
+        registerChars(Regex.rZenkaku, (c) -> !(c <= 0x7F || isHankata(c)));
+        registerChars(Regex.rKanji, (c) -> (0x4E00 <= c && c <= 0x9FFF) || c == '々' || (0xF900 <= c && c <= 0xFAFF));
+        registerChars(Regex.rCode, (c) -> isAlnum(c) || c == '_' || c == '-');
+        Matchers.put(Regex.rWord, (v) -> true);
+        for (Field field : Regex.class.getFields()) {
+            try {
+                String regex = (String) field.get(null);
+                Matchers.computeIfAbsent(regex, (k) -> compile(regex, 0));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return '0' <= c && c <= '9';
+    }
+
+    private static boolean isAlpha(int c) {
+        return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z');
+    }
+
+    private static boolean isAlnum(int c) {
+        return isDigit(c) || isAlpha(c);
+    }
+
+    /** \p{Punct} と同じ ASCII 記号 */
+    private static boolean isSymbol(int c) {
+        return (0x21 <= c && c <= 0x2F) || (0x3A <= c && c <= 0x40) || (0x5B <= c && c <= 0x60)
+                || (0x7B <= c && c <= 0x7E);
+    }
+
+    /** 半角カタカナ (｡-ﾟ) */
+    private static boolean isHankata(int c) {
+        return 0xFF61 <= c && c <= 0xFF9F;
+    }
+
+    /** 全ての文字が条件を満たすかを文字コード単位で判定する処理を登録します。 */
+    private static void registerChars(String regex, final IntPredicate chars) {
+        Matchers.put(regex, (v) -> {
+            for (int i = 0; i < v.length();) {
+                int c = Character.codePointAt(v, i);
+                if (!chars.test(c)) {
+                    return false;
+                }
+                i += Character.charCount(c);
+            }
+            return true;
+        });
+    }
+
     /**
      * 正規表現に文字列がマッチするか。(nullは許容)
      * <p>引数のregexにはRegex定数を利用する事を推奨します。
      */
     public static boolean match(String regex, Object v) {
-        return v != null ? v.toString().matches(regex) : true;
+        return v != null ? matcher(regex).test(v.toString()) : true;
+    }
+
+    /** 正規表現の判定処理を返します。 */
+    public static Predicate<CharSequence> matcher(String regex) {
+        return matcher(regex, 0);
+    }
+
+    /**
+     * 正規表現の判定処理を返します。
+     * <p>Regex 定数 ( フラグ無し ) は保持した判定処理を返します。それ以外は呼出しの都度コンパイルするため、
+     * 繰り返し利用する時は戻り値を保持してください。 ( MatchValidator は検証定義毎に保持します )
+     * @param regex 文字列全体に対する正規表現
+     * @param flags {@link Pattern} のフラグ
+     */
+    public static Predicate<CharSequence> matcher(String regex, int flags) {
+        Predicate<CharSequence> matcher = flags == 0 ? Matchers.get(regex) : null;
+        return matcher != null ? matcher : compile(regex, flags);
+    }
+
+    private static Predicate<CharSequence> compile(String regex, int flags) {
+        Pattern pattern = Pattern.compile(regex, flags);
+        return (v) -> pattern.matcher(v).matches();
     }
 
     /** 文字桁数チェック、max以下の時はtrue。(サロゲートペア対応) */
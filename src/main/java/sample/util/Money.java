@@ -0,0 +1,207 @@
+package sample.util;
+
+import java.io.Serializable;
+import java.math.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 小数点以下桁数を固定した long 値で表現する不変の金額型。
+ * <p>同じ桁数の金額同士の加減算は long の演算のみで行い、桁あふれ時は例外とします。
+ * 業務上の金額 (残高や受渡金額の集計等) の頻出経路で {@link Calculator} の代わりに利用してください。
+ * <p>BigDecimal から変換する際の端数は標準で切り捨てます。
+ * low: 扱える値は最大で long の範囲 (小数点以下桁数を含めて18桁程度) です。
+ */
+public final class Money implements Serializable, Comparable<Money> {
+    private static final long serialVersionUID = 1L;
+    /** 扱える最大の小数点以下桁数 */
+    public static final int MaxScale = 18;
+    private static final long[] Pow10 = new long[MaxScale + 1];
+    /** 通貨コード毎の小数点以下桁数 */
+    private static final Map<String, Integer> Scales = new ConcurrentHashMap<>();
+
+    static {
+        Pow10[0] = 1L;
+        for (int i = 1; i <= MaxScale; i++) {
+            Pow10[i] = Pow10[i - 1] * 10L;
+        }
+    }
+
+    /** 小数点以下桁数を考慮しない値 */
+    private final long unscaled;
+    /** 小数点以下桁数 */
+    private final int scale;
+
+    private Money(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    /** 小数点以下桁数を考慮しない値を返します。 */
+    public long unscaled() {
+        return unscaled;
+    }
+
+    /** 小数点以下桁数を返します。 */
+    public int scale() {
+        return scale;
+    }
+
+    /** 与えた金額を加えます。(小数点以下桁数が同じ金額のみ指定できます) */
+    public Money add(final Money v) {
+        verifyScale(v);
+        return v.unscaled == 0 ? this : new Money(Math.addExact(unscaled, v.unscaled), scale);
+    }
+
+    /**
+     * 与えた計算値を加えます。
+     * <p>自身の桁数で表現できない端数を持つ時は、加算後に切り捨てます。
+     */
+    public Money add(final BigDecimal v) {
+        if (fits(v)) {
+            return new Money(Math.addExact(unscaled, unscaled(v, scale)), scale);
+        }
+        return of(decimal().add(v), scale);
+    }
+
+    /** 与えた金額を引きます。(小数点以下桁数が同じ金額のみ指定できます) */
+    public Money subtract(final Money v) {
+        verifyScale(v);
+        return v.unscaled == 0 ? this : new Money(Math.subtractExact(unscaled, v.unscaled), scale);
+    }
+
+    /**
+     * 与えた計算値を引きます。
+     * <p>自身の桁数で表現できない端数を持つ時は、減算後に切り捨てます。
+     */
+    public Money subtract(final BigDecimal v) {
+        if (fits(v)) {
+            return new Money(Math.subtractExact(unscaled, unscaled(v, scale)), scale);
+        }
+        return of(decimal().subtract(v), scale);
+    }
+
+    /** 符号を反転した金額を返します。 */
+    public Money negate() {
+        return new Money(Math.negateExact(unscaled), scale);
+    }
+
+    /** 符号を返します。 */
+    public int signum() {
+        return Long.signum(unscaled);
+    }
+
+    /** 0の時はtrue。 */
+    public boolean isZero() {
+        return unscaled == 0;
+    }
+
+    /** 金額をBigDecimalで返します。 */
+    public BigDecimal decimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private boolean fits(final BigDecimal v) {
+        return v.scale() <= scale || v.stripTrailingZeros().scale() <= scale;
+    }
+
+    private void verifyScale(final Money v) {
+        if (scale != v.scale) {
+            throw new IllegalArgumentException("Scale mismatch [" + scale + "] [" + v.scale + "]");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int compareTo(final Money o) {
+        verifyScale(o);
+        return Long.compare(unscaled, o.unscaled);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Money)) {
+            return false;
+        }
+        Money o = (Money) obj;
+        return unscaled == o.unscaled && scale == o.scale;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(unscaled) + scale;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return decimal().toPlainString();
+    }
+
+    /** 金額0を返します。 */
+    public static Money zero(int scale) {
+        return new Money(0L, verifyScale(scale));
+    }
+
+    /** 指定通貨の金額0を返します。 */
+    public static Money zero(String currency) {
+        return zero(scale(currency));
+    }
+
+    /** 小数点以下桁数を考慮しない値から金額を生成します。 */
+    public static Money ofUnscaled(long unscaled, int scale) {
+        return new Money(unscaled, verifyScale(scale));
+    }
+
+    /** 指定した小数点以下桁数の金額を生成します。(端数は切り捨て) */
+    public static Money of(final BigDecimal v, int scale) {
+        return of(v, scale, RoundingMode.DOWN);
+    }
+
+    /**
+     * 指定した小数点以下桁数の金額を生成します。
+     * @throws ArithmeticException long の範囲で表現できない時
+     */
+    public static Money of(final BigDecimal v, int scale, RoundingMode mode) {
+        verifyScale(scale);
+        if (v.scale() <= scale) {
+            return new Money(unscaled(v, scale), scale);
+        }
+        return new Money(unscaled(v.setScale(scale, mode), scale), scale);
+    }
+
+    /** 指定通貨の金額を生成します。(端数は切り捨て) */
+    public static Money of(final BigDecimal v, String currency) {
+        return of(v, scale(currency));
+    }
+
+    /** 通貨の小数点以下桁数を返します。(通貨毎に初回のみ算出します) */
+    public static int scale(String currency) {
+        Integer scale = Scales.get(currency);
+        if (scale == null) {
+            scale = Math.max(0, java.util.Currency.getInstance(currency).getDefaultFractionDigits());
+            Scales.put(currency, scale);
+        }
+        return scale;
+    }
+
+    private static int verifyScale(int scale) {
+        if (scale < 0 || MaxScale < scale) {
+            throw new IllegalArgumentException("Unsupported scale [" + scale + "]");
+        }
+        return scale;
+    }
+
+    /** 端数を切り捨てて指定桁数の unscaled 値へ変換します。 */
+    private static long unscaled(final BigDecimal v, int scale) {
+        if (0 <= v.scale() && v.scale() <= scale) {
+            // low: unscaledValue() は BigInteger を生成するため、桁移動して long へ直接変換する
+            long unscaled = v.scale() == 0 ? v.longValueExact() : v.scaleByPowerOfTen(v.scale()).longValueExact();
+            return v.scale() == scale ? unscaled : Math.multiplyExact(unscaled, Pow10[scale - v.scale()]);
+        }
+        return unscaled(v.setScale(scale, RoundingMode.DOWN), scale);
+    }
+
+}
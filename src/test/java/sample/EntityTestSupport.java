@@ -177,7 +177,7 @@ public class EntityTestSupport {
 
         private static DataSource createDataSource() {
             OrmDataSourceProperties ds = new OrmDataSourceProperties();
-            ds.setUrl("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+            ds.setUrl("jdbc:h2:mem:entitytest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
             ds.setUsername("");
             ds.setPassword("");
             return ds.dataSource();
@@ -0,0 +1,55 @@
+package sample.context;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import org.junit.*;
+
+public class TimestamperTest {
+
+    private Map<String, String> settingMap;
+    private Timestamper time;
+
+    @Before
+    public void before() {
+        settingMap = new HashMap<>();
+        settingMap.put(Timestamper.KeyDay, "2017-01-04");
+        time = new Timestamper();
+        time.setSetting(new AppSettingHandler(settingMap));
+        time.setRefreshMillis(60_000L);
+    }
+
+    @Test
+    public void 営業日は再確認間隔内であれば保持した値を返す() {
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 4)));
+        // 他ノードでの更新
+        settingMap.put(Timestamper.KeyDay, "2017-01-05");
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 4)));
+        assertThat(time.tp().getDay(), is(LocalDate.of(2017, 1, 4)));
+
+        // 破棄後は再取得される
+        time.refresh();
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 5)));
+    }
+
+    @Test
+    public void 再確認間隔を過ぎた営業日は再取得される() {
+        time.setRefreshMillis(0);
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 4)));
+        settingMap.put(Timestamper.KeyDay, "2017-01-05");
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 5)));
+    }
+
+    @Test
+    public void 営業日を進めると保持した値も更新される() {
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 4)));
+        // low: モック設定は更新内容を保持しないため、永続化済の状態を直接設定する
+        settingMap.put(Timestamper.KeyDay, "2017-01-05");
+        time.proceedDay(LocalDate.of(2017, 1, 5));
+        assertThat(time.day(), is(LocalDate.of(2017, 1, 5)));
+    }
+
+}
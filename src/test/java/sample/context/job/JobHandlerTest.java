@@ -0,0 +1,227 @@
+package sample.context.job;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import sample.*;
+import sample.ValidationException.ErrorKeys;
+import sample.context.actor.ActorSession;
+import sample.context.job.JobHandler.JobStatus;
+import sample.context.job.JobStep.JobChunk;
+import sample.context.lock.*;
+import sample.context.orm.SystemRepository;
+
+//low: 簡易な正常系検証が中心
+public class JobHandlerTest extends EntityTestSupport {
+
+    private SystemRepository sys;
+    private JobHandler job;
+    private LocalDate day;
+
+    @Override
+    protected void setupPreset() {
+        targetEntities(JobInstance.class, JobStepExecution.class);
+    }
+
+    @Override
+    protected void before() {
+        sys = new SystemRepository();
+        sys.setDh(dh);
+        sys.setEm(SharedEntityManagerCreator.createSharedEntityManager(emf));
+        job = new JobHandler();
+        job.setRep(sys);
+        job.setTx(txm);
+        job.setSession(new ActorSession());
+        job.setIdLock(new IdLockHandler());
+        job.start();
+        day = businessDay.day();
+    }
+
+    @Override
+    public void cleanup() {
+        job.stop();
+        super.cleanup();
+    }
+
+    @Test
+    public void ジョブをチャンク単位にチェックポイントを記録しながら実行する() {
+        List<Integer> processed = new ArrayList<>();
+        JobInstance instance = job.run("test", day, Arrays.asList(
+                step("step1", 10, 3, processed, -1),
+                step("step2", 5, 5, processed, -1)));
+        assertThat(instance.getStatusType(), is(ActionStatusType.Processed));
+        assertThat(processed.size(), is(15));
+
+        JobStatus status = job.status(instance.getId());
+        assertThat(status.getJob().getRunCount(), is(1));
+        List<Matcher<? super JobStepExecution>> steps = Arrays.asList(
+                allOf(hasProperty("stepName", is("step1")), hasProperty("checkpoint", is("9")),
+                        hasProperty("processedCount", is(10L)), hasProperty("chunkCount", is(4)),
+                        hasProperty("statusType", is(ActionStatusType.Processed))),
+                allOf(hasProperty("stepName", is("step2")), hasProperty("checkpoint", is("4")),
+                        hasProperty("processedCount", is(5L)), hasProperty("chunkCount", is(2)),
+                        hasProperty("statusType", is(ActionStatusType.Processed))));
+        assertThat(status.getSteps(), contains(steps));
+
+        // 完了済のジョブは再実行できない
+        try {
+            job.run("test", day, Arrays.asList(step("step1", 10, 3, processed, -1)));
+            fail();
+        } catch (ValidationException e) {
+            assertThat(e.getMessage(), is(ErrorKeys.ActionUnprocessing));
+        }
+    }
+
+    @Test
+    public void 失敗したジョブはチェックポイントから再開する() {
+        List<Integer> processed = new ArrayList<>();
+        try {
+            job.run("test", day, Arrays.asList(
+                    step("step1", 4, 2, processed, -1),
+                    step("step2", 10, 3, processed, 7)));
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("failure 7"));
+        }
+        JobInstance failed = tx(() -> JobInstance.get(sys, "test", day).get());
+        assertThat(failed.getStatusType(), is(ActionStatusType.Error));
+        List<JobStepExecution> steps = job.status(failed.getId()).getSteps();
+        assertThat(steps.get(0).getStatusType(), is(ActionStatusType.Processed));
+        assertThat(steps.get(1), allOf(hasProperty("statusType", is(ActionStatusType.Error)),
+                hasProperty("checkpoint", is("5")), hasProperty("processedCount", is(6L))));
+
+        // 完了済のステップとチェックポイントまでのチャンクは再処理されない
+        processed.clear();
+        JobInstance instance = job.run("test", day, Arrays.asList(
+                step("step1", 4, 2, processed, -1),
+                step("step2", 10, 3, processed, -1)));
+        assertThat(instance.getId(), is(failed.getId()));
+        assertThat(instance.getRunCount(), is(2));
+        assertThat(instance.getStatusType(), is(ActionStatusType.Processed));
+        assertThat(processed, contains(6, 7, 8, 9));
+        assertThat(job.status(instance.getId()).getSteps().get(1).getProcessedCount(), is(10L));
+    }
+
+    @Test
+    public void パーティションの処理に失敗したチャンクはチェックポイントを進めない() {
+        PartitionHandler partition = new PartitionHandler();
+        partition.setSession(new ActorSession());
+        partition.setParallelism(2);
+        partition.start();
+        try {
+            List<String> keys = IntStream.range(0, 9).mapToObj((i) -> "k" + i).collect(Collectors.toList());
+            Set<String> processed = ConcurrentHashMap.newKeySet();
+            Set<String> failing = ConcurrentHashMap.newKeySet();
+            failing.add("k4");
+            // 処理済のキーは対象外とする冪等なステップ
+            JobStep step = JobStep.of("partition", (checkpoint) -> {
+                List<String> chunk = keys.stream()
+                        .filter((k) -> checkpoint == null || 0 < k.compareTo(checkpoint))
+                        .filter((k) -> !processed.contains(k))
+                        .limit(3).collect(Collectors.toList());
+                if (chunk.isEmpty()) {
+                    return new JobChunk(0, checkpoint, true);
+                }
+                return JobChunk.of(partition.execute("test", chunk, (key) -> {
+                    if (failing.contains(key)) {
+                        throw new IllegalStateException("failure " + key);
+                    }
+                    processed.add(key);
+                    return 1;
+                }), chunk, 3);
+            });
+            try {
+                job.run("test", day, Arrays.asList(step));
+                fail();
+            } catch (IllegalStateException e) {
+            }
+            JobInstance failed = tx(() -> JobInstance.get(sys, "test", day).get());
+            assertThat(failed.getStatusType(), is(ActionStatusType.Error));
+            assertThat(job.status(failed.getId()).getSteps().get(0), allOf(
+                    hasProperty("statusType", is(ActionStatusType.Error)), hasProperty("checkpoint", is("k2"))));
+            assertThat(processed, not(hasItem("k4")));
+
+            // 失敗したキーは再実行時に処理される
+            failing.clear();
+            JobInstance instance = job.run("test", day, Arrays.asList(step));
+            assertThat(instance.getStatusType(), is(ActionStatusType.Processed));
+            assertThat(processed, hasSize(9));
+        } finally {
+            partition.stop();
+        }
+    }
+
+    @Test
+    public void ジョブを非同期に実行する() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JobStep blocking = JobStep.of("blocking", (checkpoint) -> {
+            await(release);
+            return new JobChunk(1, "0", true);
+        });
+        JobInstance instance = job.submit("test", day, Arrays.asList(blocking));
+        assertThat(instance.getStatusType(), is(ActionStatusType.Processing));
+        // 実行中のジョブは多重に受け付けない
+        for (int i = 0; i < 100 && job.status(instance.getId()).getSteps().isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        try {
+            job.submit("test", day, Arrays.asList(blocking));
+            fail();
+        } catch (IdLockBusyException e) {
+        }
+        // 同時実行数を超えたジョブは受け付けない
+        JobInstance other = job.submit("other", day, Arrays.asList(blocking));
+        try {
+            job.submit("third", day, Arrays.asList(blocking));
+            fail();
+        } catch (ValidationException e) {
+            assertThat(e.getMessage(), is(ErrorKeys.JobBusy));
+        }
+        release.countDown();
+        for (int i = 0; i < 500 && !job.status(instance.getId()).getJob().getStatusType().isFinish(); i++) {
+            Thread.sleep(10);
+        }
+        JobStatus status = job.status(instance.getId());
+        assertThat(status.getJob().getStatusType(), is(ActionStatusType.Processed));
+        assertThat(status.getSteps().get(0).getProcessedCount(), is(1L));
+        for (int i = 0; i < 500 && !job.status(other.getId()).getJob().getStatusType().isFinish(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(job.status(other.getId()).getJob().getStatusType(), is(ActionStatusType.Processed));
+    }
+
+    /** 0からsize-1までの値を chunkSize 件単位に処理するステップ (failAt の値で例外) */
+    private JobStep step(String name, int size, int chunkSize, List<Integer> processed, int failAt) {
+        return JobStep.of(name, (checkpoint) -> {
+            int start = checkpoint == null ? 0 : Integer.parseInt(checkpoint) + 1;
+            List<Integer> chunk = IntStream.range(start, Math.min(start + chunkSize, size)).boxed()
+                    .collect(Collectors.toList());
+            chunk.forEach((v) -> {
+                if (v == failAt) {
+                    throw new IllegalStateException("failure " + v);
+                }
+                processed.add(v);
+            });
+            String last = chunk.isEmpty() ? checkpoint : String.valueOf(chunk.get(chunk.size() - 1));
+            return new JobChunk(chunk.size(), last, chunk.size() < chunkSize);
+        });
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package sample.context.job;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.*;
+
+import org.junit.*;
+
+import sample.context.actor.*;
+import sample.context.actor.Actor.ActorRoleType;
+import sample.context.job.PartitionHandler.PartitionResult;
+
+//low: 簡易な正常系検証が中心
+public class PartitionHandlerTest {
+
+    private ActorSession session;
+    private PartitionHandler partition;
+
+    @Before
+    public void before() {
+        session = new ActorSession();
+        partition = new PartitionHandler();
+        partition.setSession(session);
+        partition.setParallelism(4);
+        partition.setProgressInterval(10);
+        partition.start();
+    }
+
+    @After
+    public void after() {
+        partition.stop();
+        session.unbind();
+    }
+
+    @Test
+    public void パーティションを並列に処理する() {
+        List<Integer> keys = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        Set<String> workers = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        PartitionResult result = partition.execute("test", keys, (key) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            workers.add(Thread.currentThread().getName());
+            sleep(2);
+            processed.add(key);
+            running.decrementAndGet();
+            return 2;
+        });
+        assertThat(processed.size(), is(100));
+        assertThat(maxRunning.get(), allOf(greaterThan(1), lessThanOrEqualTo(4)));
+        assertThat(workers, everyItem(startsWith("test-worker-")));
+        assertThat(result.getPartitions(), is(100));
+        assertThat(result.getProcessed(), is(200));
+        assertThat(result.getFailed(), is(0));
+    }
+
+    @Test
+    public void 失敗したパーティションは他の処理に影響しない() {
+        List<Integer> keys = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+        PartitionResult result = partition.execute("test", keys, (key) -> {
+            if (key % 5 == 0) {
+                throw new IllegalStateException("error " + key);
+            }
+            return 1;
+        });
+        assertThat(result.getPartitions(), is(20));
+        assertThat(result.getProcessed(), is(16));
+        assertThat(result.getFailed(), is(4));
+    }
+
+    @Test
+    public void 呼出元の利用者をワーカーへ引き継ぐ() {
+        Actor actor = new Actor("admin", ActorRoleType.Internal);
+        session.bind(actor);
+        Set<String> actorIds = ConcurrentHashMap.newKeySet();
+        partition.execute("test", Arrays.asList("a", "b", "c"), (key) -> {
+            actorIds.add(session.actor().getId());
+            return 1;
+        });
+        assertThat(actorIds, contains("admin"));
+        assertThat(partition.execute("test", Collections.<String> emptyList(), (key) -> 1).getPartitions(), is(0));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package sample.context.ledger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sample.EntityTestSupport;
+import sample.context.lock.IdLockHandler;
+import sample.model.asset.CashBalance;
+
+//low: 簡易な正常系検証が中心
+public class BalanceLedgerTest extends EntityTestSupport {
+
+    private BalanceLedger ledger;
+    private AtomicInteger loaded;
+    private LocalDate day;
+
+    @Override
+    protected void setupPreset() {
+        targetEntities(CashBalance.class);
+    }
+
+    @Override
+    protected void before() {
+        ledger = new BalanceLedger();
+        ledger.setIdLock(new IdLockHandler());
+        loaded = new AtomicInteger();
+        day = LocalDate.of(2017, 1, 10);
+    }
+
+    @Test
+    public void 台帳が無い時はDBから再構築する() {
+        assertThat(balance(day), is(amount("1000")));
+        assertThat(balance(day), is(amount("1000")));
+        assertThat(loaded.get(), is(1));
+        // 基準受渡日が異なる時は再構築
+        assertThat(balance(day.plusDays(1)), is(amount("1000")));
+        assertThat(loaded.get(), is(2));
+        ledger.evict("test", "JPY");
+        assertThat(ledger.size(), is(0));
+    }
+
+    @Test
+    public void 差分はコミット後に反映されロールバック時は破棄される() {
+        balance(day);
+        tx(() -> {
+            ledger.apply("test", "JPY", amount("-300"), null);
+            // トランザクション中の差分は参照に含まれる
+            assertThat(balance(day), is(amount("700")));
+        });
+        assertThat(balance(day), is(amount("700")));
+
+        new TransactionTemplate(txm).execute((status) -> {
+            ledger.apply("test", "JPY", amount("-200"), null);
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(balance(day), is(amount("700")));
+
+        // 基準受渡日より後に有効となる差分は反映されない
+        tx(() -> {
+            ledger.apply("test", "JPY", amount("50"), day);
+            ledger.apply("test", "JPY", amount("80"), day.plusDays(1));
+        });
+        assertThat(balance(day), is(amount("750")));
+        assertThat(loaded.get(), is(1));
+    }
+
+    @Test
+    public void 差分通知後に再構築された台帳は破棄される() {
+        tx(() -> {
+            ledger.apply("test", "JPY", amount("-300"), null);
+            // 通知時に台帳が無いので再構築値には差分が含まれている前提となる
+            assertThat(balance(day), is(amount("1000")));
+        });
+        assertThat(ledger.size(), is(0));
+        assertThat(balance(day), is(amount("1000")));
+        assertThat(loaded.get(), is(2));
+    }
+
+    private BigDecimal balance(LocalDate valueDay) {
+        Supplier<BigDecimal> loader = () -> {
+            loaded.incrementAndGet();
+            return amount("1000");
+        };
+        return ledger.balance("test", "JPY", valueDay, loader);
+    }
+
+    private BigDecimal amount(String v) {
+        return new BigDecimal(v);
+    }
+
+}
@@ -0,0 +1,200 @@
+package sample.context.lock;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import sample.EntityTestSupport;
+import sample.context.lock.IdLockHandler.LockType;
+import sample.context.orm.SystemRepository;
+
+//low: 単一JVM内で複数ノードを模した簡易な検証が中心
+public class DbIdLockProviderTest extends EntityTestSupport {
+
+    private SystemRepository sys;
+    private DbIdLockProvider providerA;
+    private DbIdLockProvider providerB;
+    private IdLockHandler nodeA;
+    private IdLockHandler nodeB;
+    private ExecutorService executor;
+
+    @Override
+    protected void setupPreset() {
+        targetEntities(IdLockLease.class);
+    }
+
+    @Override
+    protected void before() {
+        sys = new SystemRepository();
+        sys.setDh(dh);
+        sys.setEm(SharedEntityManagerCreator.createSharedEntityManager(emf));
+        providerA = provider("nodeA");
+        providerB = provider("nodeB");
+        nodeA = new IdLockHandler();
+        nodeA.setProvider(providerA);
+        nodeB = new IdLockHandler();
+        nodeB.setProvider(providerB);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    private DbIdLockProvider provider(String node) {
+        DbIdLockProvider provider = new DbIdLockProvider();
+        provider.setRep(sys);
+        provider.setTx(txm);
+        provider.setNode(node);
+        provider.setPollMillis(5L);
+        return provider;
+    }
+
+    @Override
+    public void cleanup() {
+        executor.shutdownNow();
+        super.cleanup();
+    }
+
+    @Test
+    public void ノードを跨いで同一IDのロックは排他される() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> nodeA.call("test", LockType.Read, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            nodeB.tryCall("test", LockType.Read, () -> fail());
+            fail();
+        } catch (IdLockBusyException e) {
+            assertThat(e.getId(), is("test"));
+        }
+        try {
+            nodeB.call("test", LockType.Write, 50, TimeUnit.MILLISECONDS, () -> fail());
+            fail();
+        } catch (IdLockBusyException e) {
+            assertThat(e.getLockType(), is(LockType.Write));
+        }
+        // 別IDは影響を受けない
+        assertThat(nodeB.tryCall("other", LockType.Write, () -> true), is(true));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(nodeB.call("test", LockType.Write, 5, TimeUnit.SECONDS, () -> true), is(true));
+        assertThat(nodeA.liveLocks() + nodeB.liveLocks(), is(0));
+        assertThat(leaseCount(), is(0));
+    }
+
+    @Test
+    public void 複数ノードからの同時処理は直列化される() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            final IdLockHandler node = i % 2 == 0 ? nodeA : nodeB;
+            executor.execute(() -> {
+                for (int j = 0; j < 20; j++) {
+                    node.call("test", LockType.Write, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                    });
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertThat(maxRunning.get(), is(1));
+        assertThat(leaseCount(), is(0));
+    }
+
+    @Test
+    public void ノード内の再入や読取共有はリースを共有する() throws Exception {
+        nodeA.call("test", LockType.Write, () -> {
+            assertThat(leaseCount(), is(1));
+            nodeA.call("test", LockType.Read, () -> assertThat(leaseCount(), is(1)));
+            assertThat(leaseCount(), is(1));
+        });
+        assertThat(leaseCount(), is(0));
+
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> nodeA.call("test", LockType.Read, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            assertThat(nodeA.tryCall("test", LockType.Read, () -> leaseCount()), is(1));
+        } finally {
+            release.countDown();
+        }
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(leaseCount(), is(0));
+    }
+
+    @Test
+    public void 有効期限切れのリースは他ノードが取得できる() throws Exception {
+        providerA.setLeaseMillis(300L);
+        assertTrue(providerA.lock("test", 0L));
+        assertFalse(providerB.lock("test", 0L));
+        assertThat(providerA.renew(), is(1));
+        assertFalse(providerB.lock("test", TimeUnit.MILLISECONDS.toNanos(50)));
+        assertTrue(providerB.lock("test", TimeUnit.SECONDS.toNanos(5)));
+        // 失効したリースは延長されず、解放しても他ノードのリースに影響しない
+        assertThat(providerA.renew(), is(0));
+        providerA.unlock("test");
+        assertFalse(providerA.lock("test", 0L));
+        providerB.unlock("test");
+        assertThat(leaseCount(), is(0));
+    }
+
+    @Test
+    public void 失効したリースの保持者は処理を確定できない() throws Exception {
+        providerA.setLeaseMillis(300L);
+        try {
+            nodeA.call("test", LockType.Write, () -> {
+                assertThat(providerA.isValid("test"), is(true));
+                // 有効期限切れのリースを他ノードが取得する
+                try {
+                    assertTrue(providerB.lock("test", TimeUnit.SECONDS.toNanos(5)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertThat(providerA.renew(), is(0));
+                assertThat(providerA.isValid("test"), is(false));
+            });
+            fail();
+        } catch (IdLockBusyException e) {
+            assertThat(e.getId(), is("test"));
+        }
+        assertThat(nodeA.liveLocks(), is(0));
+        providerB.unlock("test");
+        assertThat(leaseCount(), is(0));
+    }
+
+    @Test
+    public void 型の異なる同値のIDは別のリースとなる() throws Exception {
+        assertTrue(providerA.lock(1L, 0L));
+        assertTrue(providerB.lock("1", 0L));
+        assertFalse(providerB.lock(1L, 0L));
+        assertThat(leaseCount(), is(2));
+        providerA.unlock(1L);
+        providerB.unlock("1");
+        assertThat(leaseCount(), is(0));
+    }
+
+    private int leaseCount() {
+        return tx(() -> sys.findAll(IdLockLease.class).size());
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
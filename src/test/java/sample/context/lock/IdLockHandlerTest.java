@@ -0,0 +1,258 @@
+package sample.context.lock;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import sample.context.lock.IdLockHandler.*;
+
+//low: 簡易な並行性の検証が中心
+public class IdLockHandlerTest {
+
+    private IdLockHandler lock;
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        lock = new IdLockHandler();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void ストライプ数は2の累乗に切り上げられる() {
+        assertThat(new IdLockHandler(1).getStripeSize(), is(1));
+        assertThat(new IdLockHandler(5).getStripeSize(), is(8));
+        assertThat(new IdLockHandler(64).getStripeSize(), is(64));
+    }
+
+    @Test
+    public void 同一IDの書込ロックは直列化される() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                lock.call("test", LockType.Write, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(10);
+                    running.decrementAndGet();
+                });
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(maxRunning.get(), is(1));
+    }
+
+    @Test
+    public void ロック待ちが異なるIDの処理を妨げない() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> lock.call("busy", LockType.Write, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        // 同一IDの待機者がいる状態でも別IDのロックは即時に取得できる
+        executor.execute(() -> lock.call("busy", LockType.Write, () -> {}));
+        Future<Boolean> other = executor.submit(() -> lock.call("other", LockType.Write, () -> true));
+        try {
+            assertThat(other.get(5, TimeUnit.SECONDS), is(true));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void 参照が無くなったIDロックは破棄される() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> lock.call("test", LockType.Write, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        Future<?> waiter = executor.submit(() -> lock.call("test", LockType.Read, () -> {}));
+        lock.call("other", LockType.Read, () -> assertThat(lock.liveLocks(), is(2)));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        waiter.get(5, TimeUnit.SECONDS);
+        assertThat(lock.liveLocks(), is(0));
+
+        // 再入時は全て解放されるまで保持される
+        lock.call("test", LockType.Write, () -> {
+            lock.call("test", LockType.Read, () -> assertThat(lock.liveLocks(), is(1)));
+            assertThat(lock.liveLocks(), is(1));
+        });
+        assertThat(lock.liveLocks(), is(0));
+    }
+
+    @Test
+    public void 即時判定時は保持中のロックを待機せずに例外とする() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> lock.call("test", LockType.Write, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            executor.submit(() -> lock.tryCall("test", LockType.Read, () -> fail())).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            IdLockBusyException busy = (IdLockBusyException) e.getCause();
+            assertThat(busy.getId(), is("test"));
+            assertThat(busy.getLockType(), is(LockType.Read));
+        }
+        try {
+            executor.submit(() -> lock.call("test", LockType.Write, 50, TimeUnit.MILLISECONDS, () -> fail()))
+                    .get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IdLockBusyException.class));
+        }
+        // 取得に失敗した要求は参照として残らない
+        assertThat(lock.liveLocks(), is(1));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(lock.liveLocks(), is(0));
+        assertThat(lock.tryCall("test", LockType.Write, () -> "ok"), is("ok"));
+        assertThat(lock.call("test", LockType.Read, 1, TimeUnit.SECONDS, () -> "ok"), is("ok"));
+        assertThat(lock.liveLocks(), is(0));
+    }
+
+    @Test
+    public void 保持中のロック状態を参照する() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> lock.call("test", LockType.Write, () -> {
+            Thread.currentThread().setName("holder");
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        Future<?> waiter = executor.submit(() -> lock.call("test", LockType.Read, () -> {}));
+        try {
+            for (int i = 0; i < 100 && lock.locks().get(0).getWaiters() == 0; i++) {
+                sleep(10);
+            }
+            sleep(20);
+            List<IdLockInfo> locks = lock.locks();
+            assertThat(locks.size(), is(1));
+            IdLockInfo info = locks.get(0);
+            assertThat(info.getId(), is("test"));
+            assertThat(info.getLockType(), is(LockType.Write));
+            assertThat(info.getOwner(), is("holder"));
+            assertThat(info.getWaiters(), is(1));
+            assertThat(info.getHoldMillis(), greaterThan(0L));
+        } finally {
+            release.countDown();
+        }
+        holder.get(5, TimeUnit.SECONDS);
+        waiter.get(5, TimeUnit.SECONDS);
+        assertTrue(lock.locks().isEmpty());
+    }
+
+    @Test
+    public void 複数IDのロックは指定順序に依らずデッドロックしない() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            final List<String> ids = i % 2 == 0 ? Arrays.asList("a", "b", "c") : Arrays.asList("c", "b", "a");
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    lock.callAll(ids, LockType.Write, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                    });
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertThat(maxRunning.get(), is(1));
+        assertThat(lock.liveLocks(), is(0));
+    }
+
+    @Test
+    public void 複数IDのロックはID毎にロック種別を指定できる() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, LockType> locks = new HashMap<>();
+        locks.put("shared", LockType.Read);
+        locks.put("a", LockType.Write);
+        Future<?> holder = executor.submit(() -> lock.callAll(locks, () -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            // 読取ロック同士は共有できる
+            Map<String, LockType> other = new HashMap<>();
+            other.put("shared", LockType.Read);
+            other.put("b", LockType.Write);
+            assertThat(executor.submit(() -> lock.callAll(other, () -> true)).get(5, TimeUnit.SECONDS), is(true));
+
+            // 一部のロックが取得できない時は取得済のロックも解放される
+            other.put("a", LockType.Write);
+            try {
+                lock.callAll(other, 10, TimeUnit.MILLISECONDS, () -> fail());
+                fail();
+            } catch (IdLockBusyException e) {
+                assertThat(e.getId(), is("a"));
+            }
+            assertThat(lock.liveLocks(), is(2));
+            assertThat(lock.tryCall("b", LockType.Write, () -> true), is(true));
+        } finally {
+            release.countDown();
+        }
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(lock.liveLocks(), is(0));
+    }
+
+    @Test
+    public void 大量のIDを扱ってもロック管理領域は増加しない() throws Exception {
+        int threads = 8;
+        int idsPerThread = 100_000 / threads;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final long offset = (long) i * idsPerThread;
+            executor.execute(() -> {
+                for (long id = offset; id < offset + idsPerThread; id++) {
+                    lock.call(id, LockType.Write, () -> {});
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(lock.liveLocks(), is(0));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package sample.context.orm;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import sample.EntityTestSupport;
+import sample.model.master.Holiday;
+
+//low: 簡易な正常系検証が中心
+public class OrmRepositoryTest extends EntityTestSupport {
+
+    private static final int Rows = 2000;
+
+    @Override
+    protected void setupPreset() {
+        targetEntities(Holiday.class);
+    }
+
+    @Test
+    public void 一括登録はJDBCバッチでINSERTを発行する() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.setStatisticsEnabled(true);
+
+        // 1件毎の登録 (1行毎にINSERTを発行)
+        stats.clear();
+        tx(() -> holidays("single").forEach((m) -> {
+            rep.save(m);
+            rep.flush();
+        }));
+        long singleStatements = stats.getPrepareStatementCount();
+
+        // 一括登録
+        stats.clear();
+        List<Holiday> saved = tx(() -> rep.saveAll(holidays("bulk")));
+        long bulkStatements = stats.getPrepareStatementCount();
+
+        assertThat(saved.size(), is(Rows));
+        assertTrue(saved.stream().allMatch((m) -> m.getId() != null));
+        assertThat(tx(() -> Holiday.find(rep, LocalDate.now().getYear(), "bulk").size()), is(Rows));
+        // INSERT(40バッチ) + 採番(プール単位で40回)
+        assertThat(bulkStatements, lessThanOrEqualTo((long) Rows / OrmRepository.DefaultBatchSize * 2 + 2));
+        assertThat(singleStatements, greaterThanOrEqualTo((long) Rows));
+    }
+
+    @Test
+    public void 一括登録は呼出し前に取得していたエンティティを管理対象外にしない() {
+        tx(() -> {
+            Holiday loaded = rep.save(holidays("loaded").get(0));
+            List<Holiday> saved = rep.saveAll(holidays("bulk"));
+            assertTrue(rep.em().contains(loaded));
+            assertFalse(saved.stream().anyMatch(rep.em()::contains));
+        });
+    }
+
+    private List<Holiday> holidays(String category) {
+        LocalDate day = LocalDate.ofYearDay(LocalDate.now().getYear(), 1);
+        return IntStream.range(0, Rows).mapToObj((i) -> {
+            Holiday m = new Holiday();
+            m.setCategory(category);
+            m.setDay(day.plusDays(i % 365));
+            m.setName("holiday" + i);
+            return m;
+        }).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,371 @@
+package sample.context.orm;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.MatchMode;
+import org.junit.Test;
+
+import lombok.Value;
+import sample.*;
+import sample.ValidationException.ErrorKeys;
+import sample.context.orm.Pagination.CountType;
+import sample.model.master.Holiday;
+
+//low: 簡易な正常系検証が中心
+public class OrmTemplateTest extends EntityTestSupport {
+
+    private static final int Rows = 2000;
+    private static final int FetchSize = 100;
+
+    @Override
+    protected void setupPreset() {
+        targetEntities(Holiday.class);
+    }
+
+    @Override
+    protected void before() {
+        LocalDate day = LocalDate.ofYearDay(LocalDate.now().getYear(), 1);
+        tx(() -> rep.saveAll(IntStream.range(0, Rows).mapToObj((i) -> {
+            Holiday m = new Holiday();
+            m.setCategory(i % 2 == 0 ? "even" : "odd");
+            m.setDay(day.plusDays(i % 365));
+            m.setName("holiday" + i);
+            return m;
+        }).collect(Collectors.toList())));
+    }
+
+    @Test
+    public void 検索結果を逐次取得する() {
+        tx(() -> {
+            OrmTemplate tmpl = rep.tmpl().fetchSize(FetchSize);
+            try (Stream<Holiday> s = tmpl.streamAll(Holiday.class)) {
+                assertThat(s.count(), is((long) Rows));
+            }
+            try (Stream<Holiday> s = tmpl.stream(Holiday.class,
+                    (criteria) -> criteria.equal("category", "even").sort("id").result())) {
+                assertTrue(s.allMatch((m) -> m.getCategory().equals("even")));
+            }
+            try (Stream<Holiday> s = tmpl.stream("from Holiday h where h.category=?1 order by h.id", "odd")) {
+                assertThat(s.map(Holiday::getName).findFirst().get(), is("holiday1"));
+            }
+            emf.addNamedQuery("Holiday.findByCategory",
+                    rep.em().createQuery("from Holiday h where h.category=:category"));
+            try (Stream<Holiday> s = tmpl.streamNamed("Holiday.findByCategory",
+                    Collections.singletonMap("category", "odd"))) {
+                assertThat(s.count(), is((long) Rows / 2));
+            }
+            try (Stream<Holiday> s = tmpl.streamBySql("select * from holiday where category=?1", Holiday.class,
+                    "even")) {
+                assertThat(s.count(), is((long) Rows / 2));
+            }
+            try (Stream<Object[]> s = tmpl.streamBySql("select id, name from holiday order by id")) {
+                assertThat(s.map((row) -> row[1]).findFirst().get(), is("holiday0"));
+            }
+            try (Stream<String> s = tmpl.streamBySql("select name from holiday order by id")) {
+                assertThat(s.collect(Collectors.toList()).size(), is(Rows));
+            }
+        });
+    }
+
+    @Test
+    public void 逐次処理中のセッションキャッシュはフェッチ件数を超えない() {
+        tx(() -> {
+            Session session = rep.em().unwrap(Session.class);
+            AtomicInteger count = new AtomicInteger();
+            AtomicInteger maxManaged = new AtomicInteger();
+            Holiday loaded = rep.tmpl().load("from Holiday h where h.name=?1", "holiday1");
+            rep.tmpl().fetchSize(FetchSize).forEach(Holiday.class,
+                    (criteria) -> criteria.equal("category", "even").result(), (m) -> {
+                count.incrementAndGet();
+                maxManaged.accumulateAndGet(session.getStatistics().getEntityCount(), Math::max);
+                if (m.getName().equals("holiday0")) {
+                    m.setName("changed");
+                }
+            });
+            assertThat(count.get(), is(Rows / 2));
+            // 呼出し前に取得していたエンティティ + フェッチ件数
+            assertThat(maxManaged.get(), lessThanOrEqualTo(FetchSize + 1));
+            // 呼出し前に取得していたエンティティは管理対象のまま
+            assertTrue(rep.em().contains(loaded));
+            // 逐次処理中の変更は反映される
+            rep.flushAndClear();
+            assertThat(rep.tmpl().find("from Holiday h where h.name=?1", "changed").size(), is(1));
+
+            count.set(0);
+            rep.tmpl().fetchSize(FetchSize).forEach("from Holiday h where h.category=?1",
+                    (Holiday m) -> count.incrementAndGet(), "even");
+            assertThat(count.get(), is(Rows / 2));
+        });
+    }
+
+    @Test
+    public void 途中で終了した逐次取得はクローズで解放される() {
+        tx(() -> {
+            OrmTemplate tmpl = rep.tmpl().fetchSize(FetchSize);
+            try (Stream<Holiday> s = tmpl.streamAll(Holiday.class)) {
+                assertThat(s.limit(10).count(), is(10L));
+            }
+            // 後続の検索に影響しない
+            assertThat(tmpl.loadAll(Holiday.class).size(), is(Rows));
+        });
+    }
+
+    @Test
+    public void キーセット方式でページング検索する() {
+        tx(() -> {
+            List<Long> expected = rep.tmpl().find("select h.id from Holiday h order by h.day desc, h.id desc");
+            List<Long> actual = new ArrayList<>();
+            Pagination page = new Pagination(1, 300, Sort.descBy("day")).keyset();
+            int pages = 0;
+            while (page != null) {
+                PagingList<Holiday> result = rep.tmpl().find(Holiday.class, (criteria) -> criteria, page);
+                result.getList().forEach((m) -> actual.add(m.getId()));
+                // トータル件数は先頭ページのみ算出する
+                assertThat(result.getPage().getTotal(), is(pages == 0 ? (long) Rows : -1L));
+                String next = result.getPage().getNextCursor();
+                page = next != null ? new Pagination(page.getPage() + 1, 300, Sort.descBy("day")).keyset(next) : null;
+                pages++;
+            }
+            assertThat(pages, is(7));
+            assertThat(actual, is(expected));
+
+            // 検索条件と併用する
+            PagingList<Holiday> odd = rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "odd"),
+                    new Pagination(1, 10, Sort.ascBy("name")).keyset());
+            PagingList<Holiday> next = rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "odd"),
+                    new Pagination(2, 10, Sort.ascBy("name")).keyset(odd.getPage().getNextCursor()));
+            assertThat(odd.getList().get(0).getName(), is("holiday1"));
+            assertThat(next.getList().get(0).getName(), is("holiday1017"));
+        });
+    }
+
+    @Test
+    public void 不正なキーセット位置は審査例外とする() {
+        tx(() -> {
+            try {
+                rep.tmpl().find(Holiday.class, (criteria) -> criteria,
+                        new Pagination(2, 10, Sort.descBy("day")).keyset("invalid"));
+                fail();
+            } catch (ValidationException e) {
+                assertThat(e.getMessage(), is(ErrorKeys.PagingCursor));
+            }
+        });
+    }
+
+    @Test
+    public void キーセット方式の並び順はPaginationのソート条件のみで指定する() {
+        tx(() -> {
+            try {
+                rep.tmpl().find(Holiday.class, (criteria) -> criteria.sort("name"),
+                        new Pagination(1, 10, Sort.descBy("day")).keyset());
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        });
+    }
+
+    @Test
+    public void トータル件数の算出方式を切り替える() {
+        PagingCounter counter = new PagingCounter();
+        counter.start();
+        rep.setCounter(counter);
+        try {
+            String ql = "from Holiday h where h.category=?1 order by h.id";
+            tx(() -> {
+                PagingList<Holiday> exact = rep.tmpl().find(ql, new Pagination(1, 300), "even");
+                assertThat(exact.getCountType(), is(CountType.Exact));
+                assertThat(exact.getPage().getTotal(), is((long) Rows / 2));
+                assertThat(exact.getHasNext(), is(true));
+
+                PagingList<Holiday> async = rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "odd"),
+                        new Pagination(4, 300).countType(CountType.Async));
+                assertThat(async.getCountType(), is(CountType.Async));
+                assertThat(async.getPage().getTotal(), is((long) Rows / 2));
+                assertThat(async.getList().size(), is(100));
+                assertThat(async.getHasNext(), is(false));
+
+                PagingList<Holiday> hasNext = rep.tmpl().find(ql, new Pagination(3, 300).countType(CountType.HasNext), "even");
+                assertThat(hasNext.getCountType(), is(CountType.HasNext));
+                assertThat(hasNext.getPage().getTotal(), is(-1L));
+                assertThat(hasNext.getList().size(), is(300));
+                assertThat(hasNext.getHasNext(), is(true));
+                assertThat(rep.tmpl().find(ql, new Pagination(4, 300).countType(CountType.HasNext), "even").getHasNext(),
+                        is(false));
+
+                assertThat(rep.tmpl().find(ql, new Pagination(1, 300).countType(CountType.Cached), "even")
+                        .getPage().getTotal(), is((long) Rows / 2));
+            });
+            // 保持期間内はキャッシュした件数を返す
+            tx(() -> rep.save(holiday("even", "added")));
+            tx(() -> {
+                PagingList<Holiday> cached = rep.tmpl().find(ql, new Pagination(1, 300).countType(CountType.Cached), "even");
+                assertThat(cached.getCountType(), is(CountType.Cached));
+                assertThat(cached.getPage().getTotal(), is((long) Rows / 2));
+                assertThat(rep.tmpl().find(ql, new Pagination(1, 300).countType(CountType.Cached), "odd")
+                        .getPage().getTotal(), is((long) Rows / 2));
+                counter.evict();
+                assertThat(rep.tmpl().find(ql, new Pagination(1, 300).countType(CountType.Cached), "even")
+                        .getPage().getTotal(), is((long) Rows / 2 + 1));
+            });
+
+            // PagingCounter 未登録時は都度算出する
+            rep.setCounter(null);
+            tx(() -> {
+                PagingList<Holiday> fallback = rep.tmpl().find(ql, new Pagination(1, 300).countType(CountType.Async), "even");
+                assertThat(fallback.getCountType(), is(CountType.Exact));
+                assertThat(fallback.getPage().getTotal(), is((long) Rows / 2 + 1));
+            });
+        } finally {
+            counter.stop();
+        }
+    }
+
+    @Test
+    public void 同じ形の検索条件は生成済のJPQLを再利用する() {
+        OrmQueryCache cache = new OrmQueryCache();
+        rep.setQueryCache(cache);
+        tx(() -> {
+            List<Holiday> even = rep.tmpl().find(Holiday.class,
+                    (criteria) -> criteria.equal("category", "even").sortDesc("day").sort("id").result());
+            assertThat(cache.misses(), is(1L));
+            List<Holiday> odd = rep.tmpl().find(Holiday.class,
+                    (criteria) -> criteria.equal("category", "odd").sortDesc("day").sort("id").result());
+            assertThat(cache.misses(), is(1L));
+            assertThat(cache.hits(), is(1L));
+            assertThat(ids(even), is(ids(rep.tmpl().find(OrmCriteria.of(rep.em(), Holiday.class)
+                    .equal("category", "even").sortDesc("day").sort("id").result()))));
+            assertThat(ids(odd), is(ids(rep.tmpl().find(OrmCriteria.of(rep.em(), Holiday.class)
+                    .equal("category", "odd").sortDesc("day").sort("id").result()))));
+
+            // 値の有無で条件句の組合せが変わる時は別の形として扱う
+            LocalDate day = LocalDate.ofYearDay(LocalDate.now().getYear(), 1);
+            List<Holiday> mixed = rep.tmpl().find(Holiday.class, (criteria) -> criteria
+                    .in("category", new Object[] { "even", "odd" })
+                    .between("day", day.plusDays(10), day.plusDays(20))
+                    .like(new String[] { "name", "category" }, "holiday1", MatchMode.START)
+                    .gte("id", 0L)
+                    .isNotNull("name")
+                    .sort("id").result());
+            assertThat(cache.misses(), is(2L));
+            assertThat(ids(mixed), is(ids(rep.tmpl().find(OrmCriteria.of(rep.em(), Holiday.class)
+                    .in("category", new Object[] { "even", "odd" })
+                    .between("day", day.plusDays(10), day.plusDays(20))
+                    .like(new String[] { "name", "category" }, "holiday1", MatchMode.START)
+                    .gte("id", 0L)
+                    .isNotNull("name")
+                    .sort("id").result()))));
+            assertFalse(mixed.isEmpty());
+
+            // ページング検索は検索と件数算出の JPQL を再利用する
+            rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "even"), new Pagination(2, 10));
+            long hits = cache.hits();
+            PagingList<Holiday> paged = rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "odd"),
+                    new Pagination(2, 10));
+            assertThat(cache.hits(), is(hits + 2));
+            assertThat(paged.getPage().getTotal(), is((long) Rows / 2));
+            assertThat(paged.getList().size(), is(10));
+        });
+    }
+
+    @Test
+    public void 形で表現できない検索条件はCriteriaを都度変換する() {
+        OrmQueryCache cache = new OrmQueryCache();
+        rep.setQueryCache(cache);
+        tx(() -> {
+            List<Holiday> list = rep.tmpl().find(Holiday.class, (criteria) -> criteria
+                    .add(criteria.builder().equal(criteria.root().get("category"), "even")).result());
+            assertThat(list.size(), is(Rows / 2));
+            // result 後に加工した CriteriaQuery
+            List<Holiday> distinct = rep.tmpl().find(Holiday.class,
+                    (criteria) -> criteria.equal("category", "odd").result().distinct(true));
+            assertThat(distinct.size(), is(Rows / 2));
+            assertThat(cache.hits() + cache.misses(), is(0L));
+        });
+    }
+
+    @Test
+    public void 最大保持数を超えた形のJPQLは保持しない() {
+        OrmQueryCache cache = new OrmQueryCache();
+        cache.setMaxSize(1);
+        assertThat(cache.get("a", () -> "from A"), is("from A"));
+        assertThat(cache.get("b", () -> "from B"), is("from B"));
+        // 保持済の形は破棄されない
+        assertThat(cache.get("a", () -> "unused"), is("from A"));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.hits(), is(1L));
+        assertThat(cache.misses(), is(2L));
+    }
+
+    @Test
+    public void 検索結果をDTOで取得する() {
+        tx(() -> {
+            Session session = rep.em().unwrap(Session.class);
+            rep.em().clear();
+            List<HolidayView> list = rep.tmpl().findInto(Holiday.class, HolidayView.class,
+                    (criteria) -> criteria.equal("category", "even").sort("id"));
+            assertThat(list.size(), is(Rows / 2));
+            assertThat(list.stream().map(HolidayView::getId).collect(Collectors.toList()),
+                    is(ids(rep.tmpl().find(Holiday.class, (criteria) -> criteria.equal("category", "even").sort("id").result()))));
+            assertThat(list.get(0).getName(), is("holiday0"));
+            rep.em().clear();
+            rep.tmpl().findInto(Holiday.class, HolidayView.class, (criteria) -> criteria.equal("category", "odd"));
+            // エンティティはセッションキャッシュへ登録されない
+            assertThat(session.getStatistics().getEntityCount(), is(0));
+
+            // 取得するフィールドを指定する
+            List<HolidayName> names = rep.tmpl().findInto(Holiday.class, HolidayName.class,
+                    (criteria) -> criteria.select("name", "day").equal("category", "odd").sortDesc("id"));
+            assertThat(names.get(0).getName(), is("holiday" + (Rows - 1)));
+
+            // 形で表現できない条件は Criteria のコンストラクタ式で取得する
+            List<HolidayName> criteriaNames = rep.tmpl().findInto(Holiday.class, HolidayName.class,
+                    (criteria) -> criteria.select("name", "day")
+                            .add(criteria.builder().equal(criteria.root().get("category"), "odd")).sortDesc("id"));
+            assertThat(criteriaNames, is(names));
+
+            PagingList<HolidayView> paged = rep.tmpl().findInto(Holiday.class, HolidayView.class,
+                    (criteria) -> criteria.equal("category", "even").sort("id"), new Pagination(2, 10));
+            assertThat(paged.getPage().getTotal(), is((long) Rows / 2));
+            assertThat(paged.getList().get(0).getName(), is("holiday20"));
+
+            try (Stream<HolidayView> s = rep.tmpl().fetchSize(FetchSize).streamInto(Holiday.class, HolidayView.class,
+                    (criteria) -> criteria)) {
+                assertThat(s.count(), is((long) Rows));
+            }
+        });
+    }
+
+    @Value
+    public static class HolidayView {
+        private Long id;
+        private String category;
+        private LocalDate day;
+        private String name;
+    }
+
+    @Value
+    public static class HolidayName {
+        private String name;
+        private LocalDate day;
+    }
+
+    private List<Long> ids(List<Holiday> list) {
+        return list.stream().map(Holiday::getId).collect(Collectors.toList());
+    }
+
+    private Holiday holiday(String category, String name) {
+        Holiday m = new Holiday();
+        m.setCategory(category);
+        m.setDay(LocalDate.now());
+        m.setName(name);
+        return m;
+    }
+
+}
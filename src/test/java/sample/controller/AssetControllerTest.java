@@ -9,8 +9,9 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import sample.WebTestSupport;
+import sample.controller.AssetController.CashOutUI;
 import sample.model.asset.CashInOut;
-import sample.model.asset.CashInOut.RegCashOut;
+import sample.model.asset.CashInOut.*;
 import sample.usecase.AssetService;
 
 /**
@@ -30,7 +31,7 @@ public class AssetControllerTest extends WebTestSupport {
 
     @Test
     public void 未処理の振込依頼情報を検索します() {
-        given(service.findUnprocessedCashOut()).willReturn(resultCashOuts());
+        given(service.findUnprocessedCashOut(CashOutUI.class)).willReturn(resultCashOuts());
         performGet("/cio/unprocessedOut/",
             JsonExpects.success()
                 .match("$[0].currency", "JPY")
@@ -38,10 +39,15 @@ public class AssetControllerTest extends WebTestSupport {
                 .match("$[1].absAmount", 4000));
     }
 
-    private List<CashInOut> resultCashOuts() {
-        return Arrays.asList(
-                fixtures.cio("sample", "3000", true),
-                fixtures.cio("sample", "4000", true));
+    private List<CashOutUI> resultCashOuts() {
+        return Arrays.asList(cashOut("3000"), cashOut("4000"));
+    }
+
+    private CashOutUI cashOut(String absAmount) {
+        CashInOut cio = fixtures.cio("sample", absAmount, true);
+        return new CashOutUI(cio.getId(), cio.getCurrency(), cio.getAbsAmount(), cio.getRequestDay(),
+                cio.getRequestDate(), cio.getEventDay(), cio.getValueDay(), cio.getStatusType(),
+                cio.getUpdateDate(), cio.getCashflowId());
     }
 
     @Test
@@ -57,4 +63,27 @@ public class AssetControllerTest extends WebTestSupport {
         );
     }
 
+    @Test
+    public void 振込出金依頼を一括でします() {
+        CashInOut cio = fixtures.cio("sample", "1000", true);
+        cio.setId(1L);
+        given(service.withdrawAll(anyListOf(RegCashOut.class))).willReturn(Arrays.asList(
+                new CashOutResult(cio, null),
+                new CashOutResult(null, "error.CashInOut.withdrawAmount")));
+        performJsonPost("/cio/withdrawAll",
+            "{\"list\": ["
+                + "{\"currency\": \"JPY\", \"absAmount\": 1000},"
+                + "{\"currency\": \"JPY\", \"absAmount\": 9000}]}",
+            JsonExpects.success()
+                .match("$[0].id", 1)
+                .empty("$[0].message")
+                .empty("$[1].id")
+                .notEmpty("$[1].message"));
+
+        // 通貨の書式誤り [例外]
+        performJsonPost("/cio/withdrawAll",
+            "{\"list\": [{\"currency\": \"JP1\", \"absAmount\": 1000}]}",
+            JsonExpects.failure());
+    }
+
 }
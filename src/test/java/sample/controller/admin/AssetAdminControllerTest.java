@@ -10,6 +10,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import sample.WebTestSupport;
+import sample.controller.admin.AssetAdminController.CashInOutUI;
 import sample.model.asset.CashInOut;
 import sample.model.asset.CashInOut.FindCashInOut;
 import sample.usecase.AssetAdminService;
@@ -33,7 +34,7 @@ public class AssetAdminControllerTest extends WebTestSupport {
     @Test
     public void 振込入出金依頼を検索します() throws Exception {
         String day = DateUtils.dayFormat(LocalDate.now());
-        given(service.findCashInOut(any(FindCashInOut.class))).willReturn(resultCashInOuts());
+        given(service.findCashInOut(any(FindCashInOut.class), eq(CashInOutUI.class))).willReturn(resultCashInOuts());
         performGet(
             uriBuilder("/cio/")
                 .queryParam("updFromDay", day)
@@ -45,10 +46,18 @@ public class AssetAdminControllerTest extends WebTestSupport {
                 .match("$[1].absAmount", 8000));
     }
     
-    private List<CashInOut> resultCashInOuts() {
+    private List<CashInOutUI> resultCashInOuts() {
         return Arrays.asList(
-                fixtures.cio("sample", "3000", true),
-                fixtures.cio("sample", "8000", false));
+                cashInOut(fixtures.cio("sample", "3000", true)),
+                cashInOut(fixtures.cio("sample", "8000", false)));
+    }
+
+    private CashInOutUI cashInOut(final CashInOut cio) {
+        return new CashInOutUI(cio.getId(), cio.getAccountId(), cio.getCurrency(), cio.getAbsAmount(),
+                cio.isWithdrawal(), cio.getRequestDay(), cio.getRequestDate(), cio.getEventDay(), cio.getValueDay(),
+                cio.getTargetFiCode(), cio.getTargetFiAccountId(), cio.getSelfFiCode(), cio.getSelfFiAccountId(),
+                cio.getStatusType(), cio.getCashflowId(), cio.getCreateDate(), cio.getCreateId(),
+                cio.getUpdateDate(), cio.getUpdateId());
     }
 
 }
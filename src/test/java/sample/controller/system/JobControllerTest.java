@@ -2,12 +2,18 @@ package sample.controller.system;
 
 import static org.mockito.BDDMockito.*;
 
+import java.time.*;
+import java.util.Arrays;
+
 import org.junit.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import sample.*;
+import sample.context.job.JobHandler.JobStatus;
+import sample.context.job.JobInstance;
 import sample.usecase.*;
+import sample.usecase.job.ServiceJobExecutor;
 
 /**
  * JobController の単体検証です。
@@ -20,6 +26,8 @@ public class JobControllerTest extends WebTestSupport {
     private AssetAdminService asset;
     @MockBean
     private SystemAdminService system;
+    @MockBean
+    private ServiceJobExecutor job;
     
     @Override
     protected String prefix() {
@@ -44,4 +52,31 @@ public class JobControllerTest extends WebTestSupport {
         performPost("/daily/realizeCashflow", JsonExpects.success());
     }
 
+    @Test
+    public void submitClosingCashOut() throws Exception {
+        given(job.submitClosingCashOut()).willReturn(instance());
+        performPost("/daily/closingCashOut/submit", JsonExpects.success()
+                .match("$.id", 1)
+                .match("$.statusType", "Processing"));
+    }
+
+    @Test
+    public void status() throws Exception {
+        given(job.status(1L)).willReturn(new JobStatus(instance(), Arrays.asList()));
+        performGet("/status/1", JsonExpects.success()
+                .match("$.job.jobName", ServiceJobExecutor.JobClosingCashOut)
+                .array("$.steps"));
+    }
+
+    private JobInstance instance() {
+        JobInstance m = new JobInstance();
+        m.setId(1L);
+        m.setJobName(ServiceJobExecutor.JobClosingCashOut);
+        m.setBaseDay(LocalDate.now());
+        m.setStatusType(ActionStatusType.Processing);
+        m.setRunCount(1);
+        m.setStartDate(LocalDateTime.now());
+        return m;
+    }
+
 }
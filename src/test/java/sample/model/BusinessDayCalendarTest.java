@@ -0,0 +1,128 @@
+package sample.model;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import org.junit.Test;
+
+import sample.util.DateUtils;
+
+//low: 1日ずつ走査する素朴な算出結果との一致検証が中心
+public class BusinessDayCalendarTest {
+
+    private final Set<LocalDate> holidays = new HashSet<>(Arrays.asList(
+            LocalDate.of(2016, 12, 30), LocalDate.of(2017, 1, 2), LocalDate.of(2017, 1, 3),
+            LocalDate.of(2017, 5, 3), LocalDate.of(2017, 5, 4), LocalDate.of(2017, 5, 5),
+            LocalDate.of(2018, 1, 1)));
+    private final BusinessDayCalendar calendar = BusinessDayCalendar.of(2016, 2018, holidays);
+
+    @Test
+    public void 営業日を判定する() {
+        assertTrue(calendar.covers(LocalDate.of(2016, 1, 1)));
+        assertTrue(calendar.covers(LocalDate.of(2018, 12, 31)));
+        assertFalse(calendar.covers(LocalDate.of(2019, 1, 1)));
+        assertTrue(calendar.isBusinessDay(LocalDate.of(2017, 5, 2)));
+        assertFalse(calendar.isBusinessDay(LocalDate.of(2017, 5, 3)));
+        assertFalse(calendar.isBusinessDay(LocalDate.of(2017, 5, 6)));
+        for (LocalDate day = LocalDate.of(2016, 1, 1); calendar.covers(day); day = day.plusDays(1)) {
+            assertThat(calendar.isBusinessDay(day), is(isBusinessDay(day)));
+        }
+    }
+
+    @Test
+    public void 営業日を加減算する() {
+        // 年末年始を跨ぐ
+        assertThat(calendar.day(LocalDate.of(2016, 12, 29), 1), is(LocalDate.of(2017, 1, 4)));
+        assertThat(calendar.day(LocalDate.of(2017, 1, 4), -1), is(LocalDate.of(2016, 12, 29)));
+        // 休日を基準日とする
+        assertThat(calendar.day(LocalDate.of(2017, 5, 3), 0), is(LocalDate.of(2017, 5, 3)));
+        assertThat(calendar.day(LocalDate.of(2017, 5, 3), 1), is(LocalDate.of(2017, 5, 8)));
+        assertThat(calendar.day(LocalDate.of(2017, 5, 3), -1), is(LocalDate.of(2017, 5, 2)));
+        // 対象期間外
+        assertThat(calendar.day(LocalDate.of(2018, 12, 28), 2), is(nullValue()));
+        assertThat(calendar.day(LocalDate.of(2016, 1, 1), -1), is(nullValue()));
+
+        for (LocalDate day = LocalDate.of(2016, 2, 1); day.getYear() < 2018; day = day.plusDays(1)) {
+            for (int n = -5; n <= 5; n++) {
+                assertThat(day + "+" + n, calendar.day(day, n), is(dayWalk(day, n)));
+            }
+        }
+    }
+
+    @Test
+    public void 期間内の営業日数を算出する() {
+        assertThat(calendar.businessDaysBetween(LocalDate.of(2016, 12, 29), LocalDate.of(2017, 1, 4)), is(1));
+        assertThat(calendar.businessDaysBetween(LocalDate.of(2017, 1, 4), LocalDate.of(2016, 12, 29)), is(-1));
+        assertThat(calendar.businessDaysBetween(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 1)), is(0));
+        assertThat(calendar.businessDaysBetween(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 8)), is(2));
+        assertThat(calendar.businessDaysBetween(LocalDate.of(2016, 1, 1), LocalDate.of(2018, 12, 31)),
+                is(calendar.businessDaysBetween(LocalDate.of(2016, 1, 1), LocalDate.of(2017, 6, 30))
+                        + calendar.businessDaysBetween(LocalDate.of(2017, 6, 30), LocalDate.of(2018, 12, 31))));
+        try {
+            calendar.businessDaysBetween(LocalDate.of(2018, 1, 1), LocalDate.of(2019, 1, 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("2019-01-01"));
+        }
+    }
+
+    @Test
+    public void 複合カレンダーを交差させる() {
+        BusinessDayCalendar usd = BusinessDayCalendar.of(2016, 2018, Arrays.asList(
+                LocalDate.of(2017, 1, 16), LocalDate.of(2017, 7, 4), LocalDate.of(2018, 1, 1)));
+        BusinessDayCalendar joint = calendar.intersect(usd);
+        assertFalse(joint.isBusinessDay(LocalDate.of(2017, 1, 3)));
+        assertFalse(joint.isBusinessDay(LocalDate.of(2017, 7, 4)));
+        assertTrue(joint.isBusinessDay(LocalDate.of(2017, 7, 5)));
+        assertThat(joint.day(LocalDate.of(2017, 7, 3), 1), is(LocalDate.of(2017, 7, 5)));
+        assertThat(joint.day(LocalDate.of(2017, 1, 13), 1), is(LocalDate.of(2017, 1, 17)));
+        for (LocalDate day = LocalDate.of(2016, 1, 1); joint.covers(day); day = day.plusDays(1)) {
+            assertThat(joint.isBusinessDay(day), is(calendar.isBusinessDay(day) && usd.isBusinessDay(day)));
+        }
+        try {
+            calendar.intersect(BusinessDayCalendar.of(2017, 2018, Collections.emptyList()));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("mismatch"));
+        }
+    }
+
+    @Test
+    public void 休日の差分を反映する() {
+        BusinessDayCalendar updated = calendar.withHolidays(
+                Arrays.asList(LocalDate.of(2017, 7, 17), LocalDate.of(2017, 7, 15), LocalDate.of(2020, 1, 1)),
+                Arrays.asList(LocalDate.of(2017, 5, 4), LocalDate.of(2017, 5, 6)));
+        assertFalse(updated.isBusinessDay(LocalDate.of(2017, 7, 17)));
+        assertTrue(updated.isBusinessDay(LocalDate.of(2017, 5, 4)));
+        assertFalse(updated.isBusinessDay(LocalDate.of(2017, 5, 6)));
+        assertThat(updated.day(LocalDate.of(2017, 5, 2), 1), is(LocalDate.of(2017, 5, 4)));
+        // 元のカレンダーは変更されない
+        assertFalse(calendar.isBusinessDay(LocalDate.of(2017, 5, 4)));
+
+        Set<LocalDate> expected = new HashSet<>(holidays);
+        expected.add(LocalDate.of(2017, 7, 17));
+        expected.remove(LocalDate.of(2017, 5, 4));
+        BusinessDayCalendar rebuilt = BusinessDayCalendar.of(2016, 2018, expected);
+        for (LocalDate day = LocalDate.of(2016, 1, 1); rebuilt.covers(day); day = day.plusDays(1)) {
+            assertThat(updated.isBusinessDay(day), is(rebuilt.isBusinessDay(day)));
+        }
+    }
+
+    private boolean isBusinessDay(LocalDate day) {
+        return !DateUtils.isWeekend(day) && !holidays.contains(day);
+    }
+
+    private LocalDate dayWalk(LocalDate day, int daysToAdd) {
+        LocalDate result = day;
+        for (int i = 0; i < Math.abs(daysToAdd); i++) {
+            do {
+                result = result.plusDays(Integer.signum(daysToAdd));
+            } while (!isBusinessDay(result));
+        }
+        return result;
+    }
+
+}
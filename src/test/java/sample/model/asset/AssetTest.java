@@ -1,11 +1,15 @@
 package sample.model.asset;
 
 import static org.hamcrest.Matchers.*;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import java.util.stream.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 
 import sample.EntityTestSupport;
@@ -36,7 +40,39 @@ public class AssetTest extends EntityTestSupport {
             assertThat(
                     Asset.by("test").canWithdraw(rep, "JPY", new BigDecimal("1001"), LocalDate.of(2014, 11, 21)),
                     is(false));
+            assertThat(Asset.by("test").withdrawable(rep, "JPY", LocalDate.of(2014, 11, 21)),
+                    is(new BigDecimal("1000")));
+        });
+    }
+
+    @Test
+    public void 振込出金可能判定は未処理件数に依らず一定の検索で行う() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.setStatisticsEnabled(true);
+        LocalDate day = time.day();
+        tx(() -> {
+            fixtures.acc("test").save(rep);
+            fixtures.cb("test", day, "JPY", "100000000").save(rep);
         });
+        int pending = 0;
+        Long statements = null;
+        for (int count : new int[] { 1, 10, 100, 1000, 10000 }) {
+            int from = pending;
+            tx(() -> rep.saveAll(IntStream.range(from, count)
+                    .mapToObj((i) -> fixtures.cf("test", "1", day, day.plusDays(1)))
+                    .collect(Collectors.toList())));
+            pending = count;
+
+            stats.clear();
+            for (int i = 0; i < 20; i++) {
+                assertThat(tx(() -> Asset.by("test").withdrawable(rep, "JPY", day.plusDays(1))),
+                        is(new BigDecimal(100000000 + count)));
+            }
+            if (statements == null) {
+                statements = stats.getPrepareStatementCount();
+            }
+            assertThat(stats.getPrepareStatementCount(), is(statements));
+        }
     }
 
 }
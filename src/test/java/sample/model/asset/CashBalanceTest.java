@@ -1,14 +1,18 @@
 package sample.model.asset;
 
 import static org.hamcrest.Matchers.*;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import javax.persistence.PersistenceException;
+
 import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import sample.EntityTestSupport;
+import sample.context.job.JobStep.JobChunk;
 
 //low: 簡易な正常系検証のみ
 public class CashBalanceTest extends EntityTestSupport {
@@ -65,4 +69,41 @@ public class CashBalanceTest extends EntityTestSupport {
                     hasProperty("amount", is(BigDecimal.ZERO))));
         });
     }
+
+    @Test
+    public void 現金残高を一括で繰越する() {
+        LocalDate baseDay = businessDay.day();
+        LocalDate baseMinus1Day = businessDay.day(-1);
+        LocalDate baseMinus2Day = businessDay.day(-2);
+        tx(() -> {
+            fixtures.cb("test1", baseMinus2Day, "JPY", "1000").save(rep);
+            fixtures.cb("test1", baseMinus1Day, "JPY", "1500").save(rep);
+            fixtures.cb("test1", baseMinus1Day, "USD", "10.50").save(rep);
+            fixtures.cb("test2", baseMinus2Day, "JPY", "3000").save(rep);
+            fixtures.cb("test3", baseMinus1Day, "JPY", "5000").save(rep);
+            fixtures.cb("test3", baseDay, "JPY", "5100").save(rep);
+        });
+
+        // 基準日の残高を保有しない口座通貨のみを最新残高から繰越
+        JobChunk first = tx(() -> CashBalance.rollover(rep, baseDay, null, 2));
+        assertThat(first, allOf(hasProperty("processed", is(2)), hasProperty("last", is(false))));
+        JobChunk second = tx(() -> CashBalance.rollover(rep, baseDay, first.getCheckpoint(), 2));
+        assertThat(second, allOf(hasProperty("processed", is(1)), hasProperty("last", is(true))));
+        assertThat(tx(() -> CashBalance.rollover(rep, baseDay, null, 2)).getProcessed(), is(0));
+        tx(() -> {
+            assertThat(CashBalance.getOrNew(rep, "test1", "JPY").getAmount(), comparesEqualTo(new BigDecimal("1500")));
+            assertThat(CashBalance.getOrNew(rep, "test1", "USD").getAmount(), comparesEqualTo(new BigDecimal("10.50")));
+            assertThat(CashBalance.getOrNew(rep, "test2", "JPY").getAmount(), comparesEqualTo(new BigDecimal("3000")));
+            assertThat(CashBalance.getOrNew(rep, "test3", "JPY").getAmount(), comparesEqualTo(new BigDecimal("5100")));
+            assertThat(rep.tmpl().find("from CashBalance c where c.baseDay=?1", baseDay), hasSize(4));
+        });
+
+        // 同一基準日の残高は重複して作成できない
+        try {
+            tx(() -> fixtures.cb("test1", baseDay, "JPY", "1").save(rep));
+            fail();
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+        }
+    }
+
 }
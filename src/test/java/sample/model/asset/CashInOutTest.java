@@ -5,11 +5,15 @@ import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.*;
 
 import org.junit.Test;
 
+import lombok.Value;
 import sample.*;
 import sample.ValidationException.ErrorKeys;
+import sample.context.ledger.BalanceLedger;
+import sample.context.lock.IdLockHandler;
 import sample.model.DomainErrorKeys;
 import sample.model.account.*;
 import sample.model.asset.CashInOut.*;
@@ -63,6 +67,30 @@ public class CashInOutTest extends EntityTestSupport {
         });
     }
 
+    @Test
+    public void 振込入出金をDTOで検索する() {
+        LocalDate baseDay = businessDay.day();
+        LocalDate basePlus1Day = businessDay.day(1);
+        tx(() -> {
+            CashInOut cio = fixtures.cio(accId, "300", true).save(rep);
+            fixtures.cio(accId, "400", true).save(rep);
+            List<CashOutView> list = CashInOut.find(rep, findParam(baseDay, basePlus1Day), CashOutView.class);
+            assertThat(list, hasSize(2));
+            assertThat(CashInOut.findUnprocessed(rep, accId, CashOutView.class).stream()
+                    .filter((v) -> v.getId().equals(cio.getId())).findFirst().get(), allOf(
+                            hasProperty("absAmount", comparesEqualTo(new BigDecimal("300"))),
+                            hasProperty("statusType", is(ActionStatusType.Unprocessed))));
+        });
+    }
+
+    /** 検索結果の行から生成される DTO */
+    @Value
+    public static class CashOutView {
+        private Long id;
+        private BigDecimal absAmount;
+        private ActionStatusType statusType;
+    }
+
     private FindCashInOut findParam(LocalDate fromDay, LocalDate toDay, ActionStatusType... statusTypes) {
         return new FindCashInOut(ccy, statusTypes, fromDay, toDay);
     }
@@ -114,6 +142,32 @@ public class CashInOutTest extends EntityTestSupport {
         });
     }
 
+    @Test
+    public void 振込出金依頼を一括でする() {
+        LocalDate basePlus3Day = businessDay.day(3);
+        tx(() -> {
+            List<CashOutResult> results = CashInOut.withdrawAll(rep, businessDay, Arrays.asList(
+                    new RegCashOut(accId, ccy, new BigDecimal("300")),
+                    new RegCashOut(accId, ccy, BigDecimal.ZERO),
+                    new RegCashOut(accId, ccy, new BigDecimal("600")),
+                    new RegCashOut(accId, ccy, new BigDecimal("200")),
+                    new RegCashOut(accId, ccy, new BigDecimal("100"))));
+            assertThat(results, hasSize(5));
+            assertThat(results.get(0).isAccepted(), is(true));
+            assertThat(results.get(1).getMessage(), is(DomainErrorKeys.AbsAmountZero));
+            assertThat(results.get(2).isAccepted(), is(true));
+            // 先行する依頼の拘束額を考慮して超過を判定 [例外]
+            assertThat(results.get(3).getMessage(), is(AssetErrorKeys.CashInOutWithdrawAmount));
+            assertThat(results.get(4).isAccepted(), is(true));
+            assertThat(results.get(4).getCio(), allOf(
+                    hasProperty("id", not(nullValue())),
+                    hasProperty("valueDay", is(basePlus3Day)),
+                    hasProperty("statusType", is(ActionStatusType.Unprocessed))));
+            assertThat(CashInOut.findUnprocessed(rep, accId), hasSize(3));
+            assertThat(Asset.by(accId).withdrawable(rep, ccy, basePlus3Day), comparesEqualTo(BigDecimal.ZERO));
+        });
+    }
+
     @Test
     public void 振込出金依頼を取消する() {
         LocalDate baseDay = businessDay.day();
@@ -191,4 +245,61 @@ public class CashInOutTest extends EntityTestSupport {
         });
     }
 
+    @Test
+    public void 見込残高台帳を利用して振込出金依頼を処理する() {
+        BalanceLedger ledger = new BalanceLedger();
+        ledger.setIdLock(new IdLockHandler());
+        dh.setLedger(ledger);
+        LocalDate baseDay = businessDay.day();
+        LocalDate basePlus3Day = businessDay.day(3);
+
+        // 出金依頼 (1000 - 300)
+        CashInOut cio = tx(() -> CashInOut.withdraw(rep, businessDay, new RegCashOut(accId, ccy, new BigDecimal("300"))));
+        assertLedger(basePlus3Day, "700");
+
+        // 発生日到来処理 (拘束額が未実現キャッシュフローへ移動)
+        tx(() -> {
+            CashInOut.load(rep, cio.getId()).process(rep);
+        });
+        assertLedger(basePlus3Day, "700");
+
+        // 受渡日到来のキャッシュフロー登録 (残高へ即時反映)
+        tx(() -> {
+            Cashflow.register(rep, fixtures.cfReg(accId, "200", baseDay));
+        });
+        assertLedger(basePlus3Day, "900");
+
+        // 出金依頼の取消 (台帳を経由しない登録後は台帳を破棄しておく)
+        CashInOut future = tx(() -> fixtures.cio(accId, "100", true).save(rep));
+        ledger.evict(accId, ccy);
+        assertLedger(basePlus3Day, "800");
+        tx(() -> {
+            CashInOut.load(rep, future.getId()).cancel(rep);
+        });
+        assertLedger(basePlus3Day, "900");
+
+        // 超過の出金依頼 [例外]
+        try {
+            tx(() -> CashInOut.withdraw(rep, businessDay, new RegCashOut(accId, ccy, new BigDecimal("901"))));
+            fail();
+        } catch (ValidationException e) {
+            assertThat(e.getMessage(), is(AssetErrorKeys.CashInOutWithdrawAmount));
+        }
+        assertLedger(basePlus3Day, "900");
+    }
+
+    /** 台帳の見込残高が DB から算出した値と一致する事を検証します。 */
+    private void assertLedger(LocalDate valueDay, String expected) {
+        BigDecimal cached = tx(() -> Asset.by(accId).withdrawable(rep, ccy, valueDay));
+        BalanceLedger ledger = dh.ledger().get();
+        dh.setLedger(null);
+        try {
+            BigDecimal actual = tx(() -> Asset.by(accId).withdrawable(rep, ccy, valueDay));
+            assertThat(actual, comparesEqualTo(new BigDecimal(expected)));
+            assertThat(cached, comparesEqualTo(actual));
+        } finally {
+            dh.setLedger(ledger);
+        }
+    }
+
 }
@@ -94,4 +94,24 @@ public class CashflowTest extends EntityTestSupport {
         });
     }
 
+    @Test
+    public void 実現対象のキャッシュフローをキーセット単位に逐次検索する() {
+        LocalDate baseDay = businessDay.day();
+        LocalDate baseMinus1Day = businessDay.day(-1);
+        LocalDate basePlus1Day = businessDay.day(1);
+        tx(() -> {
+            for (int i = 0; i < 5; i++) {
+                fixtures.cf("test" + i, "1000", baseMinus1Day, baseDay).save(rep);
+            }
+            fixtures.cf("test1", "1000", baseDay, basePlus1Day).save(rep);
+        });
+        tx(() -> {
+            // 検索しながら実現しても(検索条件から外れても)取りこぼさない
+            assertThat(Cashflow.streamDoRealize(rep, baseDay, 2)
+                    .map((cf) -> cf.realize(rep))
+                    .count(), is(5L));
+            assertThat(Cashflow.streamDoRealize(rep, baseDay, 2).count(), is(0L));
+        });
+    }
+
 }
@@ -54,8 +54,38 @@ public class HolidayTest extends EntityTestSupport {
                 .of("2016-09-21", "2016-09-22", "2016-09-23")
                 .collect((s) -> new RegHolidayItem(DateUtils.day(s), "休日"));
         tx(() -> {
-            Holiday.register(rep, new RegHoliday(2016, items));
+            HolidayChanges changes = Holiday.register(rep, new RegHoliday(2016, items));
             assertThat(Holiday.find(rep, 2016), hasSize(3));
+            assertThat(changes.getAdded(), contains(LocalDate.of(2016, 9, 22), LocalDate.of(2016, 9, 23)));
+            assertThat(changes.getRemoved(), empty());
+            assertThat(changes.getRenamed(), contains(LocalDate.of(2016, 9, 21)));
+        });
+    }
+
+    @Test
+    public void 休日の差分のみを登録する() {
+        tx(() -> {
+            Long id = Holiday.load(rep, LocalDate.of(2015, 9, 22)).getId();
+            HolidayChanges changes = Holiday.register(rep, new RegHoliday(2015, Arrays.asList(
+                    new RegHolidayItem(LocalDate.of(2015, 9, 22), "休日サンプル"),
+                    new RegHolidayItem(LocalDate.of(2015, 9, 23), "秋分の日"),
+                    new RegHolidayItem(LocalDate.of(2015, 12, 23), "天皇誕生日"))));
+            assertThat(changes.getAdded(), contains(LocalDate.of(2015, 12, 23)));
+            assertThat(changes.getRemoved(), contains(LocalDate.of(2015, 9, 21)));
+            assertThat(changes.getRenamed(), contains(LocalDate.of(2015, 9, 23)));
+            assertThat(changes.days(), hasSize(3));
+
+            // 変更の無い休日はそのまま残る
+            assertThat(Holiday.load(rep, LocalDate.of(2015, 9, 22)).getId(), is(id));
+            assertThat(Holiday.load(rep, LocalDate.of(2015, 9, 23)).getName(), is("秋分の日"));
+            assertThat(Holiday.find(rep, 2015), hasSize(3));
+            assertThat(Holiday.find(rep, 2016), hasSize(1));
+
+            // 同じ内容の再登録は変更無し
+            assertTrue(Holiday.register(rep, new RegHoliday(2015, Arrays.asList(
+                    new RegHolidayItem(LocalDate.of(2015, 9, 22), "休日サンプル"),
+                    new RegHolidayItem(LocalDate.of(2015, 9, 23), "秋分の日"),
+                    new RegHolidayItem(LocalDate.of(2015, 12, 23), "天皇誕生日")))).isEmpty());
         });
     }
 }
@@ -0,0 +1,93 @@
+package sample.usecase;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.*;
+
+import sample.*;
+import sample.model.asset.*;
+
+/**
+ * AssetAdminService の単体検証です。
+ * <p>low: 簡易な正常系検証が中心
+ */
+//low: 口座単位の並列処理は個別トランザクションで実行されるため、検証データはコミットしておく
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class AssetAdminServiceTest extends UnitTestSupport {
+
+    @Autowired
+    private AssetAdminService service;
+
+    @Before
+    public void setup() {
+        loginSystem();
+    }
+
+    @Test
+    public void 振込出金依頼を口座単位に並列で締めます() {
+        List<Long> ids = tx(() -> IntStream.range(0, 10).boxed().flatMap((i) -> {
+            String accountId = "closing" + i;
+            fixtures.acc(accountId).save(rep);
+            fixtures.cb(accountId, time.day(), "JPY", "1000").save(rep);
+            return Stream.of(cio(accountId, "100"), cio(accountId, "200"));
+        }).map(CashInOut::getId).collect(Collectors.toList()));
+        CashInOut future = tx(() -> fixtures.cio("closing0", "300", true).save(rep));
+
+        service.closingCashOut();
+
+        tx(() -> {
+            ids.forEach((id) -> {
+                CashInOut cio = CashInOut.load(rep, id);
+                assertThat(cio.getStatusType(), is(ActionStatusType.Processed));
+                assertThat(cio.getCashflowId(), notNullValue());
+            });
+            assertThat(CashInOut.load(rep, future.getId()).getStatusType(), is(ActionStatusType.Unprocessed));
+        });
+    }
+
+    @Test
+    public void キャッシュフローを口座通貨単位に集計して実現します() {
+        LocalDate day = time.day();
+        List<Long> ids = tx(() -> IntStream.range(0, 5).boxed().flatMap((i) -> {
+            String accountId = "realize" + i;
+            fixtures.acc(accountId).save(rep);
+            fixtures.cb(accountId, day, "JPY", "1000").save(rep);
+            fixtures.cb(accountId, day, "USD", "10.00").save(rep);
+            return Stream.of(cf(accountId, "JPY", "100"), cf(accountId, "JPY", "200"),
+                    cf(accountId, "USD", "1.25"), cf(accountId, "USD", "0.50"));
+        }).map(Cashflow::getId).collect(Collectors.toList()));
+        Cashflow future = tx(() -> fixtures.cf("realize0", "300", day, day.plusDays(1)).save(rep));
+
+        service.realizeCashflow();
+
+        tx(() -> {
+            ids.forEach((id) -> assertThat(Cashflow.load(rep, id).getStatusType(), is(ActionStatusType.Processed)));
+            assertThat(Cashflow.load(rep, future.getId()).getStatusType(), is(ActionStatusType.Unprocessed));
+            IntStream.range(0, 5).forEach((i) -> {
+                assertThat(CashBalance.getOrNew(rep, "realize" + i, "JPY").getAmount(), comparesEqualTo(new BigDecimal("1300")));
+                assertThat(CashBalance.getOrNew(rep, "realize" + i, "USD").getAmount(), comparesEqualTo(new BigDecimal("11.75")));
+            });
+        });
+    }
+
+    private Cashflow cf(String accountId, String currency, String amount) {
+        Cashflow cf = fixtures.cf(accountId, amount, time.day(), time.day());
+        cf.setCurrency(currency);
+        return cf.save(rep);
+    }
+
+    private CashInOut cio(String accountId, String absAmount) {
+        CashInOut cio = fixtures.cio(accountId, absAmount, true);
+        cio.setEventDay(time.day());
+        return cio.save(rep);
+    }
+
+}
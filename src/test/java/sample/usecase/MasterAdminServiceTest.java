@@ -0,0 +1,111 @@
+package sample.usecase;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.*;
+
+import sample.UnitTestSupport;
+import sample.model.*;
+import sample.model.BusinessDayHandler.HolidayAccessor;
+import sample.model.master.Holiday;
+import sample.model.master.Holiday.*;
+import sample.util.DateUtils;
+
+/**
+ * MasterAdminService の単体検証です。
+ * <p>low: 簡易な正常系検証が中心
+ */
+public class MasterAdminServiceTest extends UnitTestSupport {
+
+    @Autowired
+    private BusinessDayHandler businessDay;
+    @Autowired
+    private HolidayAccessor holidayAccessor;
+    @Autowired
+    private MasterAdminService service;
+
+    @Before
+    public void setup() {
+        loginSystem();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 営業日カレンダーはコミット後に差し替えられる
+    public void 休日を登録すると営業日カレンダーへ反映される() {
+        LocalDate dayPlus1 = businessDay.day(1);
+        LocalDate dayPlus2 = businessDay.day(2);
+        assertThat(businessDay.isBusinessDay(dayPlus1), is(true));
+        assertThat(businessDay.businessDaysBetween(businessDay.day(), dayPlus2), is(2));
+
+        int year = dayPlus1.getYear();
+        service.registerHoliday(new RegHoliday(year, Arrays.asList(new RegHolidayItem(dayPlus1, "休日"))));
+        try {
+            assertThat(businessDay.isBusinessDay(dayPlus1), is(false));
+            assertThat(businessDay.day(1), is(dayPlus2));
+            assertThat(businessDay.businessDaysBetween(businessDay.day(), dayPlus2), is(1));
+        } finally {
+            // 登録内容を元に戻す
+            service.registerHoliday(new RegHoliday(year, Arrays.asList()));
+        }
+        assertThat(businessDay.day(1), is(dayPlus1));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 休日区分毎の営業日を算出する() {
+        LocalDate dayPlus1 = businessDay.day(1);
+        LocalDate dayPlus2 = businessDay.day(2);
+        assertThat(businessDay.day(1, Holiday.CategoryDefault, "USD"), is(dayPlus1));
+
+        int year = dayPlus1.getYear();
+        RegHoliday usd = new RegHoliday("USD", year, Arrays.asList(new RegHolidayItem(dayPlus1, "USD休日")));
+        service.registerHoliday(usd);
+        try {
+            // 標準の営業日には影響しない
+            assertThat(businessDay.day(1), is(dayPlus1));
+            assertThat(businessDay.day(1, "USD"), is(dayPlus2));
+            // 複合カレンダー (いずれかの休日を非営業日とする)
+            assertThat(businessDay.day(1, Holiday.CategoryDefault, "USD"), is(dayPlus2));
+            assertThat(businessDay.day(1, "USD", Holiday.CategoryDefault), is(dayPlus2));
+            // 指定順に依らず同じ複合カレンダーを参照する
+            assertThat(holidayAccessor.calendar(Holiday.CategoryDefault, "USD"), notNullValue());
+            assertThat(holidayAccessor.calendar("USD", Holiday.CategoryDefault),
+                    sameInstance(holidayAccessor.calendar(Holiday.CategoryDefault, "USD")));
+            assertThat(businessDay.isBusinessDay(dayPlus1, Holiday.CategoryDefault, "USD"), is(false));
+            assertThat(businessDay.businessDaysBetween(businessDay.day(), dayPlus2, Holiday.CategoryDefault, "USD"),
+                    is(1));
+        } finally {
+            service.registerHoliday(new RegHoliday("USD", year, Arrays.asList()));
+        }
+        assertThat(businessDay.day(1, Holiday.CategoryDefault, "USD"), is(dayPlus1));
+    }
+
+    @Test
+    public void 対象期間外の日を参照すると営業日カレンダーの期間を広げる() {
+        LocalDate day = businessDay.day();
+        LocalDate past = day.minusYears(5);
+        LocalDate future = day.plusYears(5);
+        businessDay.isBusinessDay(day);
+        businessDay.isBusinessDay(past);
+        businessDay.isBusinessDay(future);
+        BusinessDayCalendar calendar = holidayAccessor.calendar();
+        assertThat(calendar.covers(past) && calendar.covers(day) && calendar.covers(future), is(true));
+
+        // 生成済の期間内であれば異なる年を交互に参照してもカレンダーは差し替えられない
+        businessDay.isBusinessDay(day);
+        businessDay.isBusinessDay(past);
+        assertThat(holidayAccessor.calendar(), sameInstance(calendar));
+
+        // 最大対象年数を超える日は1日ずつ判定し、生成済のカレンダーは維持する
+        LocalDate far = day.plusYears(HolidayAccessor.CalendarMaxYears);
+        assertThat(businessDay.isBusinessDay(far), is(!DateUtils.isWeekend(far)));
+        assertThat(holidayAccessor.calendar(), sameInstance(calendar));
+    }
+
+}
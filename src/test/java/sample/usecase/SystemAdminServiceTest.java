@@ -3,13 +3,22 @@ package sample.usecase;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import javax.persistence.PersistenceException;
 
 import org.junit.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.*;
 
 import sample.UnitTestSupport;
 import sample.model.BusinessDayHandler;
+import sample.model.asset.CashBalance;
 
 /**
  * SystemAdminService の単体検証です。
@@ -37,6 +46,52 @@ public class SystemAdminServiceTest extends UnitTestSupport {
         assertThat(time.day(), is(dayPlus1));
         service.processDay();
         assertThat(time.day(), is(dayPlus2));
+        // 新しい営業日の残高は繰越済
+        assertThat(rep.tmpl().get("from CashBalance c where c.accountId=?1 and c.baseDay=?2", "sample", dayPlus2)
+                .isPresent(), is(true));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 残高の参照と並行して営業日を進めます() throws Exception {
+        LocalDate day = businessDay.day();
+        LocalDate dayPlus1 = businessDay.day(1);
+        List<String> accountIds = IntStream.range(0, 300).mapToObj((i) -> String.format("rollover%03d", i))
+                .collect(Collectors.toList());
+        tx(() -> accountIds.forEach((id) -> fixtures.cb(id, day, "JPY", "1000").save(rep)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 繰越とは逆順に、新しい営業日の残高をその場で作成する
+            Future<?> reader = executor.submit(() -> {
+                while (!time.day().equals(dayPlus1)) {
+                    Thread.yield();
+                }
+                List<String> reversed = new ArrayList<>(accountIds);
+                Collections.reverse(reversed);
+                reversed.forEach((id) -> {
+                    try {
+                        tx(() -> CashBalance.getOrNew(rep, id, "JPY"));
+                    } catch (PersistenceException | DataIntegrityViolationException e) {
+                        // 繰越済の残高と競合した時は繰越された残高を参照する
+                        tx(() -> CashBalance.getOrNew(rep, id, "JPY"));
+                    }
+                });
+            });
+            service.processDay();
+            reader.get(30, TimeUnit.SECONDS);
+
+            // 全ての口座が新しい営業日の残高を1件ずつ保有する
+            tx(() -> {
+                List<CashBalance> list = rep.tmpl().find(
+                        "from CashBalance c where c.accountId like 'rollover%' and c.baseDay=?1", dayPlus1);
+                assertThat(list, hasSize(300));
+                assertThat(list, everyItem(hasProperty("amount", comparesEqualTo(new BigDecimal("1000")))));
+            });
+        } finally {
+            executor.shutdownNow();
+            time.proceedDay(day);
+            tx(() -> rep.tmpl().execute("delete from CashBalance c where c.accountId like 'rollover%'"));
+        }
     }
     
 }
@@ -2,10 +2,19 @@ package sample.util;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 
 public class CheckerTest {
 
+    private static final List<String> samples = Arrays.asList(
+            "", "19azAZ", "19azAZ-", "abc", "ABC", "a_b-c", "!#$%&", "a!b", "-123", "12.5", "ｱｲｳｴｵﾟ｡", "ｱｲｳabc",
+            "ひらがな", "ゝゞ", "カタカナー", "ヽヾ", "漢字", "々", "﨑", "全角ＡＢＣ", "テスト文字𩸽", "abc\n", "\t",
+            "漢字ひらがな", "1\n2", "\u007f", "\u0080", "ﾟ", "｠");
+
     @Test
     public void 正規表現チェック() {
         assertTrue(Checker.match(Regex.rAlnum, "19azAZ"));
@@ -14,6 +23,28 @@ public class CheckerTest {
         assertFalse(Checker.match(Regex.rAlnum, "漢字ひらがな"));
     }
 
+    @Test
+    public void 文字種判定は正規表現と同じ結果を返す() throws Exception {
+        for (Field field : Regex.class.getFields()) {
+            String regex = (String) field.get(null);
+            for (String v : samples) {
+                assertEquals(field.getName() + " [" + v + "]", v.matches(regex), Checker.match(regex, v));
+            }
+        }
+        assertTrue(Checker.match(Regex.rAlnum, null));
+        assertTrue(Checker.match(Regex.rNumberNatural, 123));
+    }
+
+    @Test
+    public void Regex定数の判定処理は再利用される() {
+        assertSame(Checker.matcher(Regex.rAlnum), Checker.matcher(Regex.rAlnum));
+        assertSame(Checker.matcher(Regex.rDecimal), Checker.matcher(Regex.rDecimal));
+        // 任意の正規表現は保持しない
+        assertNotSame(Checker.matcher("^[a-z]{3}$"), Checker.matcher("^[a-z]{3}$"));
+        assertFalse(Checker.matcher("^[a-z]{3}$").test("ABC"));
+        assertTrue(Checker.matcher("^[a-z]{3}$", Pattern.CASE_INSENSITIVE).test("ABC"));
+    }
+
     @Test
     public void 桁数チェック() {
         assertTrue(Checker.len("テスト文字列", 6));
@@ -0,0 +1,93 @@
+package sample.util;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void 同じ桁数の金額を加減算する() {
+        Money v = Money.of(new BigDecimal("100.25"), 2)
+                .add(Money.of(new BigDecimal("0.5"), 2))
+                .subtract(Money.ofUnscaled(25, 2));
+        assertThat(v.decimal(), is(new BigDecimal("100.50")));
+        assertThat(v.unscaled(), is(10050L));
+        assertThat(v.negate().signum(), is(-1));
+        assertThat(v, is(Money.of(new BigDecimal("100.5"), 2)));
+        assertThat(v.compareTo(Money.zero(2)), greaterThan(0));
+        assertThat(v.toString(), is("100.50"));
+        try {
+            v.add(Money.zero(0));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("Scale mismatch"));
+        }
+    }
+
+    @Test
+    public void 通貨の桁数で端数を処理する() {
+        assertThat(Money.scale("JPY"), is(0));
+        assertThat(Money.scale("USD"), is(2));
+        assertThat(Money.of(new BigDecimal("1000.9"), "JPY").decimal(), is(new BigDecimal("1000")));
+        assertThat(Money.of(new BigDecimal("-10.129"), "USD").decimal(), is(new BigDecimal("-10.12")));
+        assertThat(Money.of(new BigDecimal("10.125"), 2, RoundingMode.HALF_UP).decimal(),
+                is(new BigDecimal("10.13")));
+
+        // 自身の桁数で表現できない計算値は演算後に切り捨てる (Calculatorと同じ結果)
+        Money jpy = Money.zero("JPY").add(new BigDecimal("1")).add(new BigDecimal("-0.5"));
+        assertThat(jpy.decimal(), is(Calculator.of(1).scale(0).add(new BigDecimal("-0.5")).decimal()));
+        assertThat(Money.zero("JPY").add(new BigDecimal("300.000")).decimal(), is(new BigDecimal("300")));
+        assertThat(Money.zero("JPY").subtract(new BigDecimal("300.4")).decimal(), is(new BigDecimal("-300")));
+    }
+
+    @Test
+    public void 桁あふれ時は例外とする() {
+        Money max = Money.ofUnscaled(Long.MAX_VALUE, 0);
+        try {
+            max.add(Money.ofUnscaled(1, 0));
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            Money.ofUnscaled(Long.MIN_VALUE, 0).subtract(new BigDecimal("1"));
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            Money.of(new BigDecimal("1e30"), 0);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+
+    @Test
+    public void Calculatorと同じ集計結果を返す() {
+        // 通貨の桁数 (USD: 2) より細かい端数を含む入出金
+        List<BigDecimal> flows = IntStream.range(0, 10_000)
+                .mapToObj((i) -> BigDecimal.valueOf(i % 2 == 0 ? i * 7 : -i * 3, i % 3 == 0 ? 2 : 3))
+                .collect(Collectors.toList());
+
+        // 計算値の加算 (演算の都度切り捨て)
+        Money money = Money.zero("USD");
+        Calculator calc = Calculator.init().scale(2).roundingAlways(true);
+        for (BigDecimal flow : flows) {
+            money = money.add(flow);
+            calc.add(flow);
+        }
+        assertThat(money.decimal(), is(calc.decimal()));
+
+        // 通貨の桁数で切り捨てた金額の加算
+        Money total = flows.stream().map((v) -> Money.of(v, "USD")).reduce(Money.zero("USD"), Money::add);
+        Calculator expected = Calculator.init().scale(2);
+        flows.forEach((v) -> expected.add(v.setScale(2, RoundingMode.DOWN)));
+        assertThat(total.decimal(), is(expected.decimal()));
+        assertThat(total.scale(), is(2));
+    }
+
+}